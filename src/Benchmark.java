@@ -0,0 +1,443 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.Edge;
+import model.Graph;
+import model.GraphGenerator;
+import model.Node;
+import model.Vertex;
+import algorithms.BatchShortestPathQuery;
+import algorithms.BellmanFordImplementation;
+import algorithms.BucketDijkstraImplementation;
+import algorithms.DeltaSteppingImplementation;
+import algorithms.DijkstraImplementation;
+import algorithms.DistanceVectorRoutingImplementation;
+import algorithms.HeapDijkstraImplementation;
+import algorithms.ParallelBellmanFordImplementation;
+import algorithms.ShortestPathAlgorithm;
+
+/**
+ * Benchmarks of the algorithms on generated graphs of several sizes and shapes, to be run on a quiet
+ * machine before and after a change.
+ *
+ * Each benchmark runs a few warmup iterations, which let the JIT compile the hot code, and then measures
+ * a few iterations of fixed length. Reported are the throughput, percentiles of the latency of single
+ * operations and the allocation per operation and per second, read from the HotSpot thread MXBean. The
+ * allocation is that of every live thread, so the pool threads of the parallel algorithms count as well;
+ * allocation by threads which end during an operation is missed. Preparation of an operation, such as building fresh routers for distance vector
+ * routing, is neither timed nor counted as allocation.
+ *
+ * The parallel algorithms and the batch queries run on a pool of the given number of threads, by
+ * default one per core. Their all targets searches and batches are followed by the speedup over the
+ * same work done sequentially, the ratio of the throughputs.
+ *
+ * Usage: java Benchmark [name filter] [iteration milliseconds] [threads]
+ *
+ * @author mehmet
+ *
+ */
+public class Benchmark {
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final long SEED = 42;
+	private static final int QUERY_COUNT = 1024;
+	// sources and targets of the distance matrixes
+	private static final int MATRIX_SIZE = 64;
+	// the linear scan of Dijkstra takes seconds per search over larger graphs
+	private static final int MAX_LINEAR_DIJKSTRA_VERTEXES = 4000;
+
+	// results are folded in here so that the JIT cannot drop the work producing them
+	private static volatile double sink;
+
+	private final long iterationNanos;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	public Benchmark(long iterationMillis) {
+		this.iterationNanos = iterationMillis * 1000000L;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String filter = args.length > 0 ? args[0] : "";
+		long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		Benchmark benchmark = new Benchmark(iterationMillis);
+
+		System.out.println(String.format("%-60s %12s %10s %10s %10s %10s %10s %12s %10s", "Benchmark", "ops/s", "p50 us", "p90 us", "p99 us",
+				"p99.9 us", "max us", "B/op", "MB/s"));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		for (int size : new int[] { 1000, 4000 }) {
+			Graph random = GraphGenerator.random(size, 4 * size, 1, 100, SEED);
+			int side = (int) Math.sqrt(size);
+			Graph grid = GraphGenerator.grid(side, side, 1, 100, SEED);
+			Graph scaleFree = GraphGenerator.scaleFree(size, 2, 1, 100, SEED);
+			Graph acyclic = GraphGenerator.acyclic(size, 4 * size, -10, 100, SEED);
+			Graph integerRandom = withIntegerWeights(random);
+			Graph integerGrid = withIntegerWeights(grid);
+
+			benchmark.queries(filter, "Dijkstra random " + size, new DijkstraImplementation(random), random);
+			benchmark.queries(filter, "Dijkstra grid " + size, new DijkstraImplementation(grid), grid);
+			benchmark.queries(filter, "Dijkstra scale free " + size, new DijkstraImplementation(scaleFree), scaleFree);
+			benchmark.queries(filter, "HeapDijkstra random " + size, new HeapDijkstraImplementation(random), random);
+			benchmark.queries(filter, "HeapDijkstra grid " + size, new HeapDijkstraImplementation(grid), grid);
+			benchmark.queries(filter, "HeapDijkstra scale free " + size, new HeapDijkstraImplementation(scaleFree), scaleFree);
+			benchmark.queries(filter, "HeapDijkstra integer random " + size, new HeapDijkstraImplementation(integerRandom), integerRandom);
+			benchmark.queries(filter, "HeapDijkstra integer grid " + size, new HeapDijkstraImplementation(integerGrid), integerGrid);
+			benchmark.queries(filter, "BucketDijkstra integer random " + size, new BucketDijkstraImplementation(integerRandom), integerRandom);
+			benchmark.queries(filter, "BucketDijkstra integer grid " + size, new BucketDijkstraImplementation(integerGrid), integerGrid);
+			benchmark.queries(filter, "BellmanFord random " + size, new BellmanFordImplementation(random), random);
+			benchmark.queries(filter, "BellmanFord negative DAG " + size, new BellmanFordImplementation(acyclic), acyclic);
+			benchmark.queries(filter, "ParallelBellmanFord random " + size + " " + threads + " threads",
+					new ParallelBellmanFordImplementation(random, pool), random);
+			benchmark.queries(filter, "DeltaStepping random " + size + " " + threads + " threads",
+					new DeltaSteppingImplementation(random, 0, pool), random);
+			benchmark.bellmanFord(filter, "random " + size, random, threads, pool);
+			benchmark.bellmanFord(filter, "negative DAG " + size, acyclic, threads, pool);
+			benchmark.batch(filter, "random " + size, new HeapDijkstraImplementation(random), random, threads, pool);
+		}
+		for (int size : new int[] { 4000, 64000 }) {
+			Graph random = GraphGenerator.random(size, 4 * size, 1, 100, SEED);
+			int side = (int) Math.sqrt(size);
+			Graph grid = GraphGenerator.grid(side, side, 1, 100, SEED);
+
+			benchmark.deltaStepping(filter, "random " + size, random, threads, pool);
+			benchmark.deltaStepping(filter, "grid " + size, grid, threads, pool);
+		}
+		pool.shutdown();
+		for (int size : new int[] { 100, 400 }) {
+			int side = (int) Math.sqrt(size);
+			benchmark.distanceVectorRouting(filter, "DistanceVector grid " + size, GraphGenerator.grid(side, side, 1, 100, SEED));
+			benchmark.distanceVectorRouting(filter, "DistanceVector scale free " + size, GraphGenerator.scaleFree(size, 2, 1, 100, SEED));
+		}
+	}
+
+	/**
+	 * @return the same vertexes with every edge weight rounded to a whole number, like integer travel times.
+	 */
+	private static Graph withIntegerWeights(Graph graph) {
+		Edge[] edges = new Edge[graph.getEdges().length];
+		for (int e = 0; e < edges.length; e++) {
+			Edge edge = graph.getEdges()[e];
+			edges[e] = new Edge(edge.getSource(), edge.getDestination(), Math.rint(edge.getWeight()));
+		}
+		return new Graph(graph.getVertexes(), edges);
+	}
+
+	/**
+	 * Point to point queries between random pairs of vertexes.
+	 */
+	public void queries(String filter, String name, final ShortestPathAlgorithm algorithm, Graph graph) throws Exception {
+		final Vertex[] vertexes = graph.getVertexes();
+		Random random = new Random(SEED);
+		final int[] sources = new int[QUERY_COUNT];
+		final int[] destinations = new int[QUERY_COUNT];
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			sources[i] = random.nextInt(vertexes.length);
+			destinations[i] = random.nextInt(vertexes.length);
+		}
+		run(filter, name, new Operation() {
+			private int query;
+
+			@Override
+			public void prepare() {
+				query = (query + 1) % QUERY_COUNT;
+			}
+
+			@Override
+			public double run() throws Exception {
+				return algorithm.findShortestPathBetween(vertexes[sources[query]], vertexes[destinations[query]]).getCost();
+			}
+		});
+	}
+
+	/**
+	 * Single source searches over the whole graph from random sources.
+	 *
+	 * @return the measurement, null if the benchmark was filtered out.
+	 */
+	public Measurement allTargets(String filter, String name, final ShortestPathAlgorithm algorithm, Graph graph) throws Exception {
+		final Vertex[] vertexes = graph.getVertexes();
+		Random random = new Random(SEED);
+		final int[] sources = new int[QUERY_COUNT];
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			sources[i] = random.nextInt(vertexes.length);
+		}
+		return run(filter, name, new Operation() {
+			private int query;
+
+			@Override
+			public void prepare() {
+				query = (query + 1) % QUERY_COUNT;
+			}
+
+			@Override
+			public double run() throws Exception {
+				return algorithm.findDistancesFrom(vertexes[sources[query]])[0];
+			}
+		});
+	}
+
+	/**
+	 * All targets searches of delta-stepping on the pool against the sequential Dijkstra implementations.
+	 */
+	public void deltaStepping(String filter, String graphName, Graph graph, int threads, ForkJoinPool pool) throws Exception {
+		Measurement dijkstra = null;
+		if (graph.getVertexes().length <= MAX_LINEAR_DIJKSTRA_VERTEXES) {
+			dijkstra = allTargets(filter, "Dijkstra all targets " + graphName, new DijkstraImplementation(graph), graph);
+		}
+		Measurement heapDijkstra = allTargets(filter, "HeapDijkstra all targets " + graphName, new HeapDijkstraImplementation(graph), graph);
+		Measurement deltaStepping = allTargets(filter, "DeltaStepping all targets " + graphName + " " + threads + " threads",
+				new DeltaSteppingImplementation(graph, 0, pool), graph);
+		printSpeedup("over Dijkstra", deltaStepping, dijkstra);
+		printSpeedup("over HeapDijkstra", deltaStepping, heapDijkstra);
+	}
+
+	/**
+	 * All targets searches of the parallel Bellman-Ford on the pool against the sequential one.
+	 */
+	public void bellmanFord(String filter, String graphName, Graph graph, int threads, ForkJoinPool pool) throws Exception {
+		Measurement bellmanFord = allTargets(filter, "BellmanFord all targets " + graphName, new BellmanFordImplementation(graph), graph);
+		Measurement parallelBellmanFord = allTargets(filter, "ParallelBellmanFord all targets " + graphName + " " + threads + " threads",
+				new ParallelBellmanFordImplementation(graph, pool), graph);
+		printSpeedup("over BellmanFord", parallelBellmanFord, bellmanFord);
+	}
+
+	/**
+	 * Batches of point to point queries and distance matrixes, answered by {@link BatchShortestPathQuery} on
+	 * the pool against the same queries answered one after the other.
+	 */
+	public void batch(String filter, String graphName, final ShortestPathAlgorithm algorithm, Graph graph, int threads, ForkJoinPool pool)
+			throws Exception {
+		final BatchShortestPathQuery batch = new BatchShortestPathQuery(algorithm, pool);
+		Vertex[] vertexes = graph.getVertexes();
+		Random random = new Random(SEED);
+		final Vertex[] sources = new Vertex[QUERY_COUNT];
+		final Vertex[] destinations = new Vertex[QUERY_COUNT];
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			sources[i] = vertexes[random.nextInt(vertexes.length)];
+			destinations[i] = vertexes[random.nextInt(vertexes.length)];
+		}
+		final Vertex[] matrixSources = Arrays.copyOf(sources, MATRIX_SIZE);
+		final Vertex[] matrixTargets = Arrays.copyOf(destinations, MATRIX_SIZE);
+
+		Measurement sequential = run(filter, "Sequential batch " + graphName, new Operation() {
+			@Override
+			public void prepare() {
+			}
+
+			@Override
+			public double run() throws Exception {
+				double cost = 0;
+				for (int i = 0; i < QUERY_COUNT; i++) {
+					cost += algorithm.findShortestPathBetween(sources[i], destinations[i]).getCost();
+				}
+				return cost;
+			}
+		});
+		Measurement parallel = run(filter, "Parallel batch " + graphName + " " + threads + " threads", new Operation() {
+			@Override
+			public void prepare() {
+			}
+
+			@Override
+			public double run() throws Exception {
+				return batch.findShortestPaths(sources, destinations)[0].getCost();
+			}
+		});
+		printSpeedup("over sequential batch", parallel, sequential);
+
+		sequential = run(filter, "Sequential distance matrix " + graphName, new Operation() {
+			@Override
+			public void prepare() {
+			}
+
+			@Override
+			public double run() throws Exception {
+				return algorithm.findDistanceMatrix(matrixSources, matrixTargets).get(0, 0);
+			}
+		});
+		parallel = run(filter, "Parallel distance matrix " + graphName + " " + threads + " threads", new Operation() {
+			@Override
+			public void prepare() {
+			}
+
+			@Override
+			public double run() throws Exception {
+				return batch.computeDistanceMatrix(matrixSources, matrixTargets).get(0, 0);
+			}
+		});
+		printSpeedup("over sequential distance matrix", parallel, sequential);
+	}
+
+	private static void printSpeedup(String name, Measurement measurement, Measurement baseline) {
+		if (measurement != null && baseline != null) {
+			System.out.println(String.format("  speedup %-50s %12.2fx", name, measurement.getThroughput() / baseline.getThroughput()));
+		}
+	}
+
+	/**
+	 * Convergence of a network of fresh routers, the graph must have both directions of every link.
+	 */
+	public void distanceVectorRouting(String filter, String name, final Graph graph) throws Exception {
+		run(filter, name, new Operation() {
+			private Node[] nodes;
+			private DistanceVectorRoutingImplementation algorithm;
+
+			@Override
+			public void prepare() {
+				nodes = GraphGenerator.toNodes(graph);
+				algorithm = new DistanceVectorRoutingImplementation(nodes);
+			}
+
+			@Override
+			public double run() {
+				algorithm.converge();
+				return algorithm.getSentMessageCount();
+			}
+		});
+	}
+
+	private Measurement run(String filter, String name, Operation operation) throws Exception {
+		if (!name.contains(filter)) {
+			return null;
+		}
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(operation, new Measurement());
+		}
+		Measurement measurement = new Measurement();
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			iterate(operation, measurement);
+		}
+		System.out.println(measurement.format(name));
+		return measurement;
+	}
+
+	private void iterate(Operation operation, Measurement measurement) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		long end = System.nanoTime() + iterationNanos;
+		double result = 0;
+		do {
+			operation.prepare();
+			// the snapshots of the other threads allocate, so they are taken outside those of this thread
+			long[] otherThreadIds = threads.getAllThreadIds();
+			long[] otherAllocatedBefore = getAllocatedBytes(otherThreadIds);
+			long allocatedBefore = getAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			result += operation.run();
+			long nanos = System.nanoTime() - start;
+			long allocated = getAllocatedBytes(threadId) - allocatedBefore;
+			allocated += getOtherThreadsAllocatedSince(threadId, otherThreadIds, otherAllocatedBefore);
+			measurement.add(nanos, allocated);
+		} while (System.nanoTime() < end);
+		sink += result;
+	}
+
+	/**
+	 * @return bytes allocated by the thread so far, 0 if the JVM does not tell.
+	 */
+	private long getAllocatedBytes(long threadId) {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+		}
+		return 0;
+	}
+
+	/**
+	 * @return bytes allocated by each of the threads so far, -1 for threads which ended, all 0 if the JVM
+	 *         does not tell.
+	 */
+	private long[] getAllocatedBytes(long[] threadIds) {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadIds);
+		}
+		return new long[threadIds.length];
+	}
+
+	/**
+	 * @return bytes allocated since the snapshot by the live threads other than the given one, threads
+	 *         started since counting from 0.
+	 */
+	private long getOtherThreadsAllocatedSince(long threadId, long[] threadIdsBefore, long[] allocatedBefore) {
+		long[] threadIds = threads.getAllThreadIds();
+		long[] allocatedNow = getAllocatedBytes(threadIds);
+		long allocated = 0;
+		for (int i = 0; i < threadIds.length; i++) {
+			if (threadIds[i] == threadId || allocatedNow[i] < 0) {
+				continue;
+			}
+			long before = 0;
+			for (int j = 0; j < threadIdsBefore.length; j++) {
+				if (threadIdsBefore[j] == threadIds[i]) {
+					before = Math.max(0, allocatedBefore[j]);
+					break;
+				}
+			}
+			allocated += allocatedNow[i] - before;
+		}
+		return allocated;
+	}
+
+	private interface Operation {
+
+		/**
+		 * Sets up the next operation, not measured.
+		 */
+		void prepare() throws Exception;
+
+		/**
+		 * @return any value depending on the work done.
+		 */
+		double run() throws Exception;
+	}
+
+	public static class Measurement {
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private long totalNanos;
+		private long allocatedBytes;
+
+		void add(long nanos, long allocated) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = nanos;
+			totalNanos += nanos;
+			allocatedBytes += allocated;
+		}
+
+		/**
+		 * @return operations per second.
+		 */
+		double getThroughput() {
+			return count / (totalNanos / 1e9);
+		}
+
+		String format(String name) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			double seconds = totalNanos / 1e9;
+			List<Object> values = new ArrayList<Object>();
+			values.add(name);
+			values.add(getThroughput());
+			values.add(percentile(sorted, 0.5));
+			values.add(percentile(sorted, 0.9));
+			values.add(percentile(sorted, 0.99));
+			values.add(percentile(sorted, 0.999));
+			values.add(sorted[count - 1] / 1e3);
+			values.add((double) allocatedBytes / count);
+			values.add(allocatedBytes / seconds / (1 << 20));
+			return String.format("%-60s %12.1f %10.1f %10.1f %10.1f %10.1f %10.1f %12.0f %10.1f", values.toArray());
+		}
+
+		private static double percentile(long[] sorted, double fraction) {
+			int position = (int) Math.ceil(fraction * sorted.length) - 1;
+			return sorted[Math.max(0, position)] / 1e3;
+		}
+	}
+}
@@ -1,11 +1,36 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import model.CompactNode;
+import model.CompressedGraph;
+import model.DynamicGraph;
 import model.Edge;
 import model.Graph;
+import model.GraphFile;
+import model.GraphImporter;
 import model.Node;
+import model.NodeIndex;
+import model.Router;
 import model.Vertex;
+import algorithms.AStarImplementation;
+import algorithms.AllPairsShortestPaths;
+import algorithms.AsyncDistanceVectorRoutingImplementation;
+import algorithms.BatchShortestPathQuery;
 import algorithms.BellmanFordImplementation;
+import algorithms.BidirectionalDijkstraImplementation;
+import algorithms.ContractionHierarchiesImplementation;
 import algorithms.DijkstraImplementation;
+import algorithms.DistanceMatrix;
 import algorithms.DistanceVectorRoutingImplementation;
+import algorithms.DynamicShortestPathTree;
+import algorithms.HeapDijkstraImplementation;
+import algorithms.LandmarkHeuristic;
 import algorithms.ShortestPathAlgorithm;
+import algorithms.ShortestPathCache;
+import algorithms.ShortestPathResult;
+import algorithms.SpfaImplementation;
 
 public class Program {
 
@@ -13,6 +38,8 @@ public class Program {
 		dijkstra();
 		bellmanFord();
 		distanceVectorRouting();
+		asyncDistanceVectorRouting();
+		compactDistanceVectorRouting();
 	}
 
 	protected static void distanceVectorRouting() {
@@ -49,8 +76,57 @@ public class Program {
 
 		DistanceVectorRoutingImplementation distanceVectorAlgorithm = new DistanceVectorRoutingImplementation(nodesArray);
 		System.out.println("\n\nDistance Vector Routing Algorithm");
-		distanceVectorAlgorithm.findShortestPath(node1, node6);
-		
+		System.out.println(distanceVectorAlgorithm.findShortestPath(node1, node6));
+
+		// the link between 2 and 5 fails, poison reverse keeps them from counting to infinity through each other
+		distanceVectorAlgorithm.setLoopPrevention(DistanceVectorRoutingImplementation.LoopPrevention.POISON_REVERSE);
+		distanceVectorAlgorithm.failLink(2, 5);
+		System.out.println("\nAfter the link between 2 and 5 failed");
+		System.out.println(distanceVectorAlgorithm.reconverge());
+		System.out.println(distanceVectorAlgorithm.findShortestPath(node1, node6));
+	}
+
+	protected static void asyncDistanceVectorRouting() {
+		Node[] nodesArray = new Node[6];
+		for (int i = 0; i < nodesArray.length; i++) {
+			nodesArray[i] = new Node(i + 1);
+		}
+		connectSampleNetwork(nodesArray);
+
+		AsyncDistanceVectorRoutingImplementation distanceVectorAlgorithm = new AsyncDistanceVectorRoutingImplementation(nodesArray);
+		System.out.println("\n\nAsynchronous Distance Vector Routing Algorithm");
+		System.out.println(distanceVectorAlgorithm.findShortestPath(nodesArray[0], nodesArray[5]));
+		distanceVectorAlgorithm.shutdown();
+	}
+
+	protected static void compactDistanceVectorRouting() {
+		NodeIndex nodeIndex = new NodeIndex(new int[] { 1, 2, 3, 4, 5, 6 });
+		CompactNode[] nodesArray = new CompactNode[6];
+		for (int i = 0; i < nodesArray.length; i++) {
+			nodesArray[i] = new CompactNode(i + 1, nodeIndex);
+		}
+		connectSampleNetwork(nodesArray);
+
+		DistanceVectorRoutingImplementation distanceVectorAlgorithm = new DistanceVectorRoutingImplementation(nodesArray);
+		System.out.println("\n\nDistance Vector Routing Algorithm with Compact Nodes");
+		System.out.println(distanceVectorAlgorithm.findShortestPath(nodesArray[0], nodesArray[5]));
+	}
+
+	// same network as in distanceVectorRouting
+	private static void connectSampleNetwork(Router[] nodesArray) {
+		connect(nodesArray[0], nodesArray[1], 3.8);
+		connect(nodesArray[0], nodesArray[2], 1.2);
+		connect(nodesArray[1], nodesArray[3], 5.1);
+		connect(nodesArray[2], nodesArray[3], 5.2);
+		connect(nodesArray[1], nodesArray[4], 1.1);
+		connect(nodesArray[3], nodesArray[4], 3.2);
+		connect(nodesArray[4], nodesArray[5], 4.4);
+	}
+
+	// undirected link
+	private static void connect(Router node, Router other, double distance) {
+		node.addNeighbour(other.getId(), distance);
+		other.addNeighbour(node.getId(), distance);
 	}
 
 	protected static void bellmanFord() {
@@ -89,7 +165,15 @@ public class Program {
 			System.out.println("\n\nBellman-Ford Algorithm");
 			// This will not terminate
 			// shortestPathAlgorithm.findShortestPathBetween(vertex1, vertex6);
-			bellmanFord.findShortestPathBetween(vertex1, vertex6);
+			System.out.println(bellmanFord.findShortestPathBetween(vertex1, vertex6));
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+		}
+
+		ShortestPathAlgorithm spfa = new SpfaImplementation(graphWithNegativeCycle);
+		try {
+			System.out.println("\n\nShortest Path Faster Algorithm");
+			System.out.println(spfa.findShortestPathBetween(vertex1, vertex6));
 		} catch (Exception e) {
 			System.out.println(e.getMessage());
 		}
@@ -120,17 +204,125 @@ public class Program {
 
 		Graph graph = new Graph(vertexes, edges);
 
-		ShortestPathAlgorithm dijkstra = new DijkstraImplementation(graph);
+		System.out.println("Dijkstra Algorithm");
+		dijkstraQueries(new DijkstraImplementation(graph), vertexes);
+
+		System.out.println("\n\nHeap Dijkstra Algorithm");
+		dijkstraQueries(new HeapDijkstraImplementation(graph), vertexes);
+
+		System.out.println("\n\nBucket Dijkstra Algorithm");
+		// every weight is a whole number, so the bucket queue engine is chosen
+		dijkstraQueries(DijkstraImplementation.create(graph), vertexes);
+
+		System.out.println("\n\nBidirectional Dijkstra Algorithm");
+		dijkstraQueries(new BidirectionalDijkstraImplementation(graph), vertexes);
+
+		System.out.println("\n\nA* Algorithm with Landmarks");
+		dijkstraQueries(new AStarImplementation(graph, new LandmarkHeuristic(2)), vertexes);
+
+		System.out.println("\n\nContraction Hierarchies");
+		dijkstraQueries(new ContractionHierarchiesImplementation(graph), vertexes);
+
+		System.out.println("\n\nHeap Dijkstra Algorithm on a Mapped Graph File");
 		try {
-			
-			System.out.println("Dijkstra Algorithm");
-			dijkstra.findShortestPathBetween(vertex1, vertex5);
-			dijkstra.findShortestPathBetween(vertex2, vertex6);
-			dijkstra.findShortestPathBetween(vertex1, vertex6);
-			dijkstra.findShortestPathBetween(vertex3, vertex4);
-
-			dijkstra.findShortestPathBetween(vertex6, vertex4);
-			dijkstra.findShortestPathBetween(vertex4, vertex1);
+			File file = File.createTempFile("graph", ".bin");
+			file.deleteOnExit();
+			GraphFile.write(new CompressedGraph(graph), file, true);
+			dijkstraQueries(new HeapDijkstraImplementation(GraphFile.map(file)), vertexes);
+		} catch (IOException err) {
+			System.out.println(err.getMessage());
+		}
+
+		System.out.println("\n\nHeap Dijkstra Algorithm on an Imported DIMACS File");
+		try {
+			File file = File.createTempFile("graph", ".gr");
+			file.deleteOnExit();
+			PrintWriter writer = new PrintWriter(file, "US-ASCII");
+			writer.printf("p sp %d %d%n", vertexes.length, edges.length);
+			for (Edge graphEdge : edges) {
+				writer.printf(Locale.ROOT, "a %d %d %s%n", graphEdge.getSource().getId(), graphEdge.getDestination().getId(), graphEdge.getWeight());
+			}
+			writer.close();
+			dijkstraQueries(new HeapDijkstraImplementation(new GraphImporter().readDimacs(file)), vertexes);
+		} catch (IOException err) {
+			System.out.println(err.getMessage());
+		}
+
+		System.out.println("\n\nBatch of Heap Dijkstra Queries");
+		BatchShortestPathQuery batch = new BatchShortestPathQuery(new HeapDijkstraImplementation(graph));
+		try {
+			Vertex[] sources = new Vertex[] { vertex1, vertex2, vertex1, vertex3 };
+			Vertex[] destinations = new Vertex[] { vertex5, vertex6, vertex6, vertex4 };
+			for (ShortestPathResult result : batch.findShortestPaths(sources, destinations)) {
+				System.out.println(result);
+			}
+		} catch (Exception err) {
+			System.out.println(err.getMessage());
+		} finally {
+			batch.shutdown();
+		}
+		System.out.println("\n\nDynamic Shortest Path Tree");
+		DynamicGraph dynamicGraph = new DynamicGraph(graph);
+		DynamicShortestPathTree tree = new DynamicShortestPathTree(dynamicGraph, vertex1);
+		System.out.println(tree.findShortestPathTo(vertex6));
+		// congestion between 5 and 6, the tree is repaired instead of recomputed
+		dynamicGraph.updateWeight(5, 6, 5);
+		System.out.println(tree.findShortestPathTo(vertex6));
+
+		System.out.println("\n\nShortest Path Cache");
+		ShortestPathCache cache = new ShortestPathCache(dynamicGraph, new ShortestPathCache.AlgorithmFactory() {
+			@Override
+			public ShortestPathAlgorithm create(Graph snapshot) {
+				return new HeapDijkstraImplementation(snapshot);
+			}
+		}, 1024, 16, ShortestPathCache.EvictionPolicy.LRU);
+		try {
+			System.out.println(cache.findShortestPathBetween(vertex1, vertex6));
+			System.out.println(cache.findShortestPathBetween(vertex1, vertex6));
+			// the congestion clears, the cached path is no longer the shortest
+			dynamicGraph.updateWeight(5, 6, 2);
+			System.out.println(cache.findShortestPathBetween(vertex1, vertex6));
+			System.out.println(cache);
+		} catch (Exception err) {
+			System.out.println(err.getMessage());
+		}
+		cache.detach();
+
+		System.out.println("\n\nAll Pairs Shortest Paths");
+		AllPairsShortestPaths allPairs = new AllPairsShortestPaths(graph);
+		try {
+			DistanceMatrix distances = allPairs.findAllDistances();
+			CompressedGraph compressedGraph = allPairs.getCompressedGraph();
+			for (int row = 0; row < distances.getRowCount(); row++) {
+				StringBuilder builder = new StringBuilder("From " + compressedGraph.getId(row) + ":");
+				for (int column = 0; column < distances.getColumnCount(); column++) {
+					double distance = distances.get(row, column);
+					builder.append(distance == Double.MAX_VALUE ? " -" : String.format(" %.1f", distance));
+				}
+				System.out.println(builder);
+			}
+		} catch (Exception err) {
+			System.out.println(err.getMessage());
+		} finally {
+			allPairs.shutdown();
+		}
+	}
+
+	private static void dijkstraQueries(ShortestPathAlgorithm dijkstra, Vertex[] vertexes) {
+		Vertex vertex1 = vertexes[0];
+		Vertex vertex2 = vertexes[1];
+		Vertex vertex3 = vertexes[2];
+		Vertex vertex4 = vertexes[3];
+		Vertex vertex5 = vertexes[4];
+		Vertex vertex6 = vertexes[5];
+		try {
+			System.out.println(dijkstra.findShortestPathBetween(vertex1, vertex5));
+			System.out.println(dijkstra.findShortestPathBetween(vertex2, vertex6));
+			System.out.println(dijkstra.findShortestPathBetween(vertex1, vertex6));
+			System.out.println(dijkstra.findShortestPathBetween(vertex3, vertex4));
+
+			System.out.println(dijkstra.findShortestPathBetween(vertex6, vertex4));
+			System.out.println(dijkstra.findShortestPathBetween(vertex4, vertex1));
 		} catch (Exception err) {
 			System.out.println(err.getMessage());
 		}
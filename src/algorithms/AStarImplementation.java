@@ -0,0 +1,79 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Wikipedia: A* is an informed search algorithm, or a best-first search, meaning that it solves problems by
+ * searching among all possible paths to the solution (goal) for the one that incurs the smallest cost
+ * (least distance travelled, shortest time, etc.), and among these paths it first considers the ones that
+ * appear to lead most quickly to the solution.
+ * 
+ * The only difference from {@link HeapDijkstraImplementation} is the heap key: the distance from the
+ * source plus the {@link Heuristic} estimate of the distance left to the destination. Vertexes leading
+ * away from the destination get large keys and are rarely settled, so a point to point query explores a
+ * fraction of the graph Dijkstra does. With an estimate of zero A* is exactly Dijkstra's algorithm.
+ * 
+ * One to many queries have no single destination to aim at and run the plain heap search.
+ * 
+ * @author mehmet
+ *
+ */
+public class AStarImplementation extends HeapDijkstraImplementation {
+
+	private final Heuristic heuristic;
+	// estimates for the graph of this algorithm, the heuristic may serve other graphs as well
+	private final Heuristic.Estimator estimator;
+
+	public AStarImplementation(Graph graph, Heuristic heuristic) {
+		super(graph);
+		this.heuristic = heuristic;
+		this.estimator = heuristic.prepare(compressedGraph);
+	}
+
+	public AStarImplementation(CompressedGraph compressedGraph, Heuristic heuristic) {
+		super(compressedGraph);
+		this.heuristic = heuristic;
+		this.estimator = heuristic.prepare(compressedGraph);
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		int indexOfSource = context.getIndexOfSource();
+		int indexOfDestination = context.getIndexOfDestination();
+		if (indexOfDestination < 0) {
+			super.runTheAlgorithm(context);
+			return;
+		}
+
+		IndexedHeap heap = context.getHeap();
+		heap.insertOrDecrease(indexOfSource, estimator.estimate(indexOfSource, indexOfDestination));
+		while (!heap.isEmpty()) {
+			int index = heap.poll();
+			context.settle(index);
+
+			if (index == indexOfDestination) {
+				break;
+			}
+
+			double distance = context.getDistance(index);
+			context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				double alt = distance + compressedGraph.getWeight(edge);
+				if (alt < context.getDistance(neighbourIndex) && !context.isSettled(neighbourIndex)) {
+					context.update(neighbourIndex, alt, index);
+					heap.insertOrDecrease(neighbourIndex, alt + estimator.estimate(neighbourIndex, indexOfDestination));
+				}
+			}
+		}
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public Heuristic.Estimator getEstimator() {
+		return estimator;
+	}
+}
@@ -0,0 +1,563 @@
+package algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import model.CompressedGraph;
+import model.CompressedGraphBuilder;
+import model.Graph;
+
+/**
+ * Distances between every pair of vertexes, as a {@link DistanceMatrix} whose rows and columns follow the
+ * indexes of the compressed graph.
+ *
+ * Floyd-Warshall suits dense graphs. The matrix is split into square tiles which fit into the cache, and
+ * for every block of intermediate vertexes the diagonal tile is updated first, then the tiles of its row
+ * and column in parallel, then all the other tiles in parallel, each tile being read and written once per
+ * block.
+ *
+ * Johnson's algorithm suits sparse graphs. Potentials found with Bellman-Ford from a virtual vertex
+ * connected to every vertex make all the weights non-negative without changing the shortest paths, so
+ * one Dijkstra search per source can then run in parallel. Graphs without negative weights skip the
+ * reweighting, and those whose weights are ints are searched with bucket queues.
+ *
+ * A table of 8 * V^2 bytes which does not fit into half of the free heap is written to a
+ * {@link MappedDistanceMatrix} instead, in a temporary file unless an output file is set.
+ *
+ * @author mehmet
+ *
+ */
+public class AllPairsShortestPaths {
+
+	// rows and columns of a tile, 64 x 64 doubles take 32 KB
+	private static final int BLOCK_SIZE = 64;
+	// Dijkstra searches handled by one task without splitting further
+	private static final int MIN_SOURCES_PER_TASK = 4;
+
+	private final CompressedGraph compressedGraph;
+	private final ForkJoinPool pool;
+	private File outputFile;
+
+	// tiles of the worker threads, reused for every block
+	private final ThreadLocal<double[][]> tiles = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[][] { new double[BLOCK_SIZE * BLOCK_SIZE], new double[BLOCK_SIZE * BLOCK_SIZE] };
+		}
+	};
+
+	public AllPairsShortestPaths(Graph graph) {
+		this(new CompressedGraph(graph));
+	}
+
+	public AllPairsShortestPaths(CompressedGraph compressedGraph) {
+		this(compressedGraph, new ForkJoinPool());
+	}
+
+	public AllPairsShortestPaths(CompressedGraph compressedGraph, ForkJoinPool pool) {
+		this.compressedGraph = compressedGraph;
+		this.pool = pool;
+	}
+
+	/**
+	 * Writes every following table to the given file, mapped into memory, whatever its size. Null goes
+	 * back to keeping tables which fit on the heap.
+	 */
+	public void setOutputFile(File outputFile) {
+		this.outputFile = outputFile;
+	}
+
+	public CompressedGraph getCompressedGraph() {
+		return compressedGraph;
+	}
+
+	/**
+	 * Runs Floyd-Warshall when the graph is dense, i.e. when E * log V reaches V^2, Johnson's algorithm
+	 * otherwise.
+	 */
+	public DistanceMatrix findAllDistances() throws Exception {
+		int vertexCount = compressedGraph.getVertexCount();
+		double log = Math.max(1, Math.log(vertexCount) / Math.log(2));
+		if (compressedGraph.getEdgeCount() * log >= (double) vertexCount * vertexCount) {
+			return floydWarshall();
+		}
+		return johnson();
+	}
+
+	/**
+	 * @throws BellmanFordImplementation.NegativeCycleException if the graph contains a negative cycle.
+	 */
+	public DistanceMatrix floydWarshall() throws Exception {
+		int vertexCount = compressedGraph.getVertexCount();
+		DistanceMatrix matrix = createMatrix(vertexCount);
+		invoke(new FloydWarshall(matrix));
+		for (int index = 0; index < vertexCount; index++) {
+			if (matrix.get(index, index) < 0) {
+				// the potentials cannot be found either, which names the cycle
+				findPotentials();
+			}
+		}
+		return finish(matrix);
+	}
+
+	/**
+	 * @throws BellmanFordImplementation.NegativeCycleException if the graph contains a negative cycle.
+	 */
+	public DistanceMatrix johnson() throws Exception {
+		double[] potentials = null;
+		CompressedGraph searchGraph = compressedGraph;
+		int[] searchIndexes = null;
+		if (compressedGraph.getMinWeight() < 0) {
+			potentials = findPotentials();
+			searchGraph = reweight(potentials);
+			searchIndexes = new int[compressedGraph.getVertexCount()];
+			for (int index = 0; index < searchIndexes.length; index++) {
+				searchIndexes[index] = searchGraph.getIndex(compressedGraph.getId(index));
+			}
+		}
+		DistanceMatrix matrix = createMatrix(compressedGraph.getVertexCount());
+		JohnsonSearch search = new JohnsonSearch(DijkstraImplementation.create(searchGraph), matrix, potentials, searchIndexes);
+		invoke(new JohnsonTask(search, 0, compressedGraph.getVertexCount()));
+		return finish(matrix);
+	}
+
+	/**
+	 * Stops the worker threads of the pool. The instance cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private DistanceMatrix createMatrix(int vertexCount) throws IOException {
+		if (outputFile != null) {
+			return MappedDistanceMatrix.create(outputFile, vertexCount, vertexCount);
+		}
+		long size = 8L * vertexCount * vertexCount;
+		Runtime runtime = Runtime.getRuntime();
+		long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		if (size <= freeHeap / 2 && (long) vertexCount * vertexCount <= Integer.MAX_VALUE - 8) {
+			return new DistanceMatrix(vertexCount, vertexCount);
+		}
+		File file = File.createTempFile("distances", ".bin");
+		file.deleteOnExit();
+		return MappedDistanceMatrix.create(file, vertexCount, vertexCount);
+	}
+
+	private DistanceMatrix finish(DistanceMatrix matrix) {
+		if (matrix instanceof MappedDistanceMatrix && outputFile != null) {
+			((MappedDistanceMatrix) matrix).flush();
+		}
+		return matrix;
+	}
+
+	private void invoke(ForkJoinTask<?> task) throws Exception {
+		try {
+			pool.invoke(task);
+		} catch (SearchFailedException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * Bellman-Ford from a virtual vertex with an edge of weight 0 to every vertex.
+	 *
+	 * @return potential of each vertex by index, such that w(u, v) + h(u) - h(v) >= 0 for every edge.
+	 */
+	private double[] findPotentials() throws Exception {
+		int vertexCount = compressedGraph.getVertexCount();
+		int virtualId = findUnusedId();
+		CompressedGraphBuilder builder = new CompressedGraphBuilder(compressedGraph.getEdgeCount() + vertexCount);
+		builder.addVertex(virtualId);
+		for (int index = 0; index < vertexCount; index++) {
+			int id = compressedGraph.getId(index);
+			builder.addEdge(virtualId, id, 0);
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				builder.addEdge(id, compressedGraph.getId(compressedGraph.getTarget(edge)), compressedGraph.getWeight(edge));
+			}
+		}
+		CompressedGraph augmentedGraph = builder.build();
+		SpfaImplementation spfa = new SpfaImplementation(augmentedGraph);
+		QueryContext context = spfa.createQueryContext();
+		spfa.findDistances(context, augmentedGraph.getIndex(virtualId), null);
+
+		double[] potentials = new double[vertexCount];
+		for (int index = 0; index < vertexCount; index++) {
+			potentials[index] = context.getDistance(augmentedGraph.getIndex(compressedGraph.getId(index)));
+		}
+		return potentials;
+	}
+
+	private int findUnusedId() {
+		int minId = Integer.MAX_VALUE;
+		int maxId = Integer.MIN_VALUE;
+		for (int index = 0; index < compressedGraph.getVertexCount(); index++) {
+			minId = Math.min(minId, compressedGraph.getId(index));
+			maxId = Math.max(maxId, compressedGraph.getId(index));
+		}
+		if (maxId < Integer.MAX_VALUE) {
+			return maxId + 1;
+		}
+		if (minId > Integer.MIN_VALUE) {
+			return minId - 1;
+		}
+		throw new IllegalStateException("The graph uses both the smallest and the largest id, no id is left for the virtual vertex.");
+	}
+
+	private CompressedGraph reweight(double[] potentials) {
+		CompressedGraphBuilder builder = new CompressedGraphBuilder(compressedGraph.getEdgeCount());
+		for (int index = 0; index < compressedGraph.getVertexCount(); index++) {
+			int id = compressedGraph.getId(index);
+			builder.addVertex(id);
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int target = compressedGraph.getTarget(edge);
+				// never negative in exact arithmetic, rounding may leave a tiny negative weight
+				double weight = Math.max(0, compressedGraph.getWeight(edge) + potentials[index] - potentials[target]);
+				builder.addEdge(id, compressedGraph.getId(target), weight);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Copies the tile at the given tile row and column into the array, one row every BLOCK_SIZE doubles.
+	 */
+	private static void loadTile(DistanceMatrix matrix, int tileRow, int tileColumn, double[] tile) {
+		int vertexCount = matrix.getRowCount();
+		int rowBegin = tileRow * BLOCK_SIZE;
+		int columnBegin = tileColumn * BLOCK_SIZE;
+		int rows = Math.min(BLOCK_SIZE, vertexCount - rowBegin);
+		int columns = Math.min(BLOCK_SIZE, vertexCount - columnBegin);
+		for (int row = 0; row < rows; row++) {
+			matrix.getRow(rowBegin + row, columnBegin, tile, row * BLOCK_SIZE, columns);
+		}
+	}
+
+	private static void storeTile(DistanceMatrix matrix, int tileRow, int tileColumn, double[] tile) {
+		int vertexCount = matrix.getRowCount();
+		int rowBegin = tileRow * BLOCK_SIZE;
+		int columnBegin = tileColumn * BLOCK_SIZE;
+		int rows = Math.min(BLOCK_SIZE, vertexCount - rowBegin);
+		int columns = Math.min(BLOCK_SIZE, vertexCount - columnBegin);
+		for (int row = 0; row < rows; row++) {
+			matrix.setRow(rowBegin + row, columnBegin, tile, row * BLOCK_SIZE, columns);
+		}
+	}
+
+	/**
+	 * c[i][j] = min(c[i][j], a[i][p] + b[p][j]) for every intermediate p of the block, p in the outer loop
+	 * so that a or b may be c itself. Unreachable is +Infinity here, which stays infinite when added to.
+	 */
+	private static void relaxTile(double[] c, double[] a, double[] b, int rows, int columns, int depth) {
+		for (int p = 0; p < depth; p++) {
+			int bRow = p * BLOCK_SIZE;
+			for (int i = 0; i < rows; i++) {
+				double aip = a[i * BLOCK_SIZE + p];
+				if (aip == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				int cRow = i * BLOCK_SIZE;
+				for (int j = 0; j < columns; j++) {
+					double alt = aip + b[bRow + j];
+					double current = c[cRow + j];
+					c[cRow + j] = alt < current ? alt : current;
+				}
+			}
+		}
+	}
+
+	private static int tileSize(int vertexCount, int tile) {
+		return Math.min(BLOCK_SIZE, vertexCount - tile * BLOCK_SIZE);
+	}
+
+	// the whole Floyd-Warshall, the blocks run one after the other inside the pool
+	private class FloydWarshall extends RecursiveAction {
+
+		private static final long serialVersionUID = -3527145630983712850L;
+
+		private final DistanceMatrix matrix;
+		private final int vertexCount;
+		private final int tileCount;
+		// tiles of the current block's row, read by every tile of the third phase
+		private final double[][] rowTiles;
+
+		FloydWarshall(DistanceMatrix matrix) {
+			this.matrix = matrix;
+			this.vertexCount = matrix.getRowCount();
+			this.tileCount = (vertexCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			this.rowTiles = new double[tileCount][];
+		}
+
+		@Override
+		protected void compute() {
+			List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+			for (int row = 0; row < vertexCount; row++) {
+				tasks.add(new InitializeRow(matrix, row));
+			}
+			invokeAll(tasks);
+
+			for (int block = 0; block < tileCount; block++) {
+				int depth = tileSize(vertexCount, block);
+				double[] diagonal = new double[BLOCK_SIZE * BLOCK_SIZE];
+				loadTile(matrix, block, block, diagonal);
+				relaxTile(diagonal, diagonal, diagonal, depth, depth, depth);
+				storeTile(matrix, block, block, diagonal);
+				rowTiles[block] = diagonal;
+
+				tasks.clear();
+				for (int tile = 0; tile < tileCount; tile++) {
+					if (tile != block) {
+						tasks.add(new BlockRowTile(this, block, tile, diagonal));
+						tasks.add(new BlockColumnTile(this, block, tile, diagonal));
+					}
+				}
+				invokeAll(tasks);
+
+				tasks.clear();
+				for (int tileRow = 0; tileRow < tileCount; tileRow++) {
+					if (tileRow != block) {
+						tasks.add(new TileRow(this, block, tileRow));
+					}
+				}
+				invokeAll(tasks);
+			}
+
+			tasks.clear();
+			for (int row = 0; row < vertexCount; row++) {
+				tasks.add(new FinishRow(matrix, row));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	// tile (block, tile): paths from the block's vertexes through the block's vertexes
+	private class BlockRowTile extends RecursiveAction {
+
+		private static final long serialVersionUID = 2130517473621694580L;
+
+		private final FloydWarshall floydWarshall;
+		private final int block;
+		private final int tile;
+		private final double[] diagonal;
+
+		BlockRowTile(FloydWarshall floydWarshall, int block, int tile, double[] diagonal) {
+			this.floydWarshall = floydWarshall;
+			this.block = block;
+			this.tile = tile;
+			this.diagonal = diagonal;
+		}
+
+		@Override
+		protected void compute() {
+			double[] current = new double[BLOCK_SIZE * BLOCK_SIZE];
+			loadTile(floydWarshall.matrix, block, tile, current);
+			int depth = tileSize(floydWarshall.vertexCount, block);
+			relaxTile(current, diagonal, current, depth, tileSize(floydWarshall.vertexCount, tile), depth);
+			storeTile(floydWarshall.matrix, block, tile, current);
+			floydWarshall.rowTiles[tile] = current;
+		}
+	}
+
+	// tile (tile, block): paths to the block's vertexes through the block's vertexes
+	private class BlockColumnTile extends RecursiveAction {
+
+		private static final long serialVersionUID = -6041979339377153262L;
+
+		private final FloydWarshall floydWarshall;
+		private final int block;
+		private final int tile;
+		private final double[] diagonal;
+
+		BlockColumnTile(FloydWarshall floydWarshall, int block, int tile, double[] diagonal) {
+			this.floydWarshall = floydWarshall;
+			this.block = block;
+			this.tile = tile;
+			this.diagonal = diagonal;
+		}
+
+		@Override
+		protected void compute() {
+			double[] current = tiles.get()[0];
+			loadTile(floydWarshall.matrix, tile, block, current);
+			int depth = tileSize(floydWarshall.vertexCount, block);
+			relaxTile(current, current, diagonal, tileSize(floydWarshall.vertexCount, tile), depth, depth);
+			storeTile(floydWarshall.matrix, tile, block, current);
+		}
+	}
+
+	// every other tile of a tile row, through the block's column tile of that row and the block's row tiles
+	private class TileRow extends RecursiveAction {
+
+		private static final long serialVersionUID = 8835419021749218861L;
+
+		private final FloydWarshall floydWarshall;
+		private final int block;
+		private final int tileRow;
+
+		TileRow(FloydWarshall floydWarshall, int block, int tileRow) {
+			this.floydWarshall = floydWarshall;
+			this.block = block;
+			this.tileRow = tileRow;
+		}
+
+		@Override
+		protected void compute() {
+			DistanceMatrix matrix = floydWarshall.matrix;
+			int vertexCount = floydWarshall.vertexCount;
+			double[][] buffers = tiles.get();
+			double[] column = buffers[0];
+			double[] current = buffers[1];
+			loadTile(matrix, tileRow, block, column);
+			int rows = tileSize(vertexCount, tileRow);
+			int depth = tileSize(vertexCount, block);
+			for (int tileColumn = 0; tileColumn < floydWarshall.tileCount; tileColumn++) {
+				if (tileColumn == block) {
+					continue;
+				}
+				loadTile(matrix, tileRow, tileColumn, current);
+				relaxTile(current, column, floydWarshall.rowTiles[tileColumn], rows, tileSize(vertexCount, tileColumn), depth);
+				storeTile(matrix, tileRow, tileColumn, current);
+			}
+		}
+	}
+
+	// edge weights, the lightest of parallel edges, 0 on the diagonal and +Infinity elsewhere
+	private class InitializeRow extends RecursiveAction {
+
+		private static final long serialVersionUID = -1208652935061458617L;
+
+		private final DistanceMatrix matrix;
+		private final int index;
+
+		InitializeRow(DistanceMatrix matrix, int index) {
+			this.matrix = matrix;
+			this.index = index;
+		}
+
+		@Override
+		protected void compute() {
+			double[] row = new double[matrix.getColumnCount()];
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+			row[index] = 0;
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int target = compressedGraph.getTarget(edge);
+				row[target] = Math.min(row[target], compressedGraph.getWeight(edge));
+			}
+			matrix.setRow(index, 0, row, 0, row.length);
+		}
+	}
+
+	// back to Double.MAX_VALUE for unreachable vertexes like every other algorithm
+	private static class FinishRow extends RecursiveAction {
+
+		private static final long serialVersionUID = 4480392853210716349L;
+
+		private final DistanceMatrix matrix;
+		private final int index;
+
+		FinishRow(DistanceMatrix matrix, int index) {
+			this.matrix = matrix;
+			this.index = index;
+		}
+
+		@Override
+		protected void compute() {
+			double[] row = new double[matrix.getColumnCount()];
+			matrix.getRow(index, 0, row, 0, row.length);
+			for (int column = 0; column < row.length; column++) {
+				if (row[column] == Double.POSITIVE_INFINITY) {
+					row[column] = Double.MAX_VALUE;
+				}
+			}
+			matrix.setRow(index, 0, row, 0, row.length);
+		}
+	}
+
+	// state shared by the tasks of one run of Johnson's algorithm
+	private static class JohnsonSearch {
+
+		final DijkstraImplementation dijkstra;
+		final DistanceMatrix matrix;
+		// null if the graph was not reweighted
+		final double[] potentials;
+		// index in the reweighted graph of each vertex, null if the graph was not reweighted
+		final int[] searchIndexes;
+		final ThreadLocal<QueryContext> contexts;
+
+		JohnsonSearch(final DijkstraImplementation dijkstra, DistanceMatrix matrix, double[] potentials, int[] searchIndexes) {
+			this.dijkstra = dijkstra;
+			this.matrix = matrix;
+			this.potentials = potentials;
+			this.searchIndexes = searchIndexes;
+			this.contexts = new ThreadLocal<QueryContext>() {
+				@Override
+				protected QueryContext initialValue() {
+					return dijkstra.createQueryContext();
+				}
+			};
+		}
+
+		void fillRow(QueryContext context, int source, double[] row) throws Exception {
+			dijkstra.findDistances(context, searchIndexes == null ? source : searchIndexes[source], null);
+			for (int target = 0; target < row.length; target++) {
+				double distance = context.getDistance(searchIndexes == null ? target : searchIndexes[target]);
+				if (potentials != null && distance != Double.MAX_VALUE) {
+					distance = distance - potentials[source] + potentials[target];
+				}
+				row[target] = distance;
+			}
+			matrix.setRow(source, 0, row, 0, row.length);
+		}
+	}
+
+	// Dijkstra from the sources from .. to - 1, splitting the range until it is small enough
+	private static class JohnsonTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 7345390197162045286L;
+
+		private final JohnsonSearch search;
+		private final int from;
+		private final int to;
+
+		JohnsonTask(JohnsonSearch search, int from, int to) {
+			this.search = search;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MIN_SOURCES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new JohnsonTask(search, from, middle), new JohnsonTask(search, middle, to));
+				return;
+			}
+			QueryContext context = search.contexts.get();
+			double[] row = new double[search.matrix.getColumnCount()];
+			for (int source = from; source < to; source++) {
+				try {
+					search.fillRow(context, source, row);
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new SearchFailedException(e);
+				}
+			}
+		}
+	}
+
+	// carries checked exceptions of the searches out of the fork/join tasks
+	private static class SearchFailedException extends RuntimeException {
+
+		private static final long serialVersionUID = -4128851062213498512L;
+
+		SearchFailedException(Exception cause) {
+			super(cause);
+		}
+	}
+}
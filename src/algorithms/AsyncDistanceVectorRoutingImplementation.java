@@ -0,0 +1,224 @@
+package algorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import model.DistanceVectorUpdate;
+import model.Router;
+
+/**
+ * Distance vector routing without rounds: every {@link Router} is an actor with its own mailbox, and the
+ * nodes run concurrently on a pool of threads the way real routers do.
+ * 
+ * When a node receives distance vectors it is scheduled on the pool, takes every vector waiting in its
+ * mailbox, runs the algorithm once and advertises the changes of its distance vector to its neighbours
+ * only if there are any. A node is never scheduled twice at the same time, so its routing tables need no
+ * locking. The network has converged when no message is waiting or being processed anywhere, which is tracked by a
+ * single counter of pending messages.
+ * 
+ * Advertisements carry only the entries which changed since the node last advertised, as immutable
+ * {@link DistanceVectorUpdate}s which all neighbours can share.
+ * 
+ * @author mehmet
+ *
+ */
+public class AsyncDistanceVectorRoutingImplementation extends DistanceVectorRoutingImplementation {
+
+	private final ForkJoinPool pool;
+	private final Map<Integer, NodeActor> actors;
+
+	// messages sent but not processed yet, the network has converged when it drops to zero
+	private final AtomicLong pendingMessages = new AtomicLong();
+	private final AtomicLong sentMessages = new AtomicLong();
+	// actors scheduled on the pool and not finished yet
+	private final AtomicInteger scheduledActors = new AtomicInteger();
+	private volatile CountDownLatch converged;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	public AsyncDistanceVectorRoutingImplementation(Router[] nodes) {
+		// FIFO scheduling, the actors are never joined
+		this(nodes, new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+	}
+
+	public AsyncDistanceVectorRoutingImplementation(Router[] nodes, ForkJoinPool pool) {
+		super(nodes);
+		this.pool = pool;
+		actors = new HashMap<Integer, NodeActor>(nodes.length);
+		for (Router node : nodesMap.values()) {
+			actors.put(node.getId(), new NodeActor(node));
+		}
+	}
+
+	/**
+	 * Lets every node apply the link changes made since the last convergence and advertise its distance
+	 * vector, then waits until no message is pending anymore.
+	 * 
+	 * @throws IllegalStateException if a node failed. The other nodes stop once they have processed the
+	 *             messages they took, the messages still in the mailboxes are processed by the next
+	 *             convergence.
+	 */
+	@Override
+	public void converge() {
+		converged = new CountDownLatch(1);
+		failure.set(null);
+		// left over by a failed convergence
+		long waiting = 0;
+		for (NodeActor actor : actors.values()) {
+			waiting += actor.mailbox.size();
+		}
+		pendingMessages.set(waiting);
+		// the initial advertisements are all in the mailboxes before any actor runs, otherwise a neighbour
+		// could get a later update of a node before its initial one
+		pendingMessages.incrementAndGet();
+		for (NodeActor actor : actors.values()) {
+			actor.node.runTheAlgorithm();
+			DistanceVectorUpdate update = actor.node.takeDistanceVectorUpdate();
+			if (update != null) {
+				actor.send(update, false);
+			}
+		}
+		for (NodeActor actor : actors.values()) {
+			if (!actor.mailbox.isEmpty()) {
+				actor.schedule();
+			}
+		}
+		messageProcessed(1);
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				converged.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure.get() != null) {
+			// no actor is scheduled anymore once failure is set, the running ones finish shortly
+			while (scheduledActors.get() > 0) {
+				Thread.yield();
+			}
+			throw new IllegalStateException("A node failed while converging.", failure.get());
+		}
+	}
+
+	/**
+	 * @return -1, the nodes do not run in rounds.
+	 */
+	@Override
+	public int getRoundCount() {
+		return -1;
+	}
+
+	/**
+	 * @return number of distance vector updates delivered since the algorithm was created.
+	 */
+	@Override
+	public long getSentMessageCount() {
+		return sentMessages.get();
+	}
+
+	/**
+	 * Stops the worker threads of the pool. The algorithm cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private void messageProcessed(long count) {
+		if (pendingMessages.addAndGet(-count) == 0) {
+			converged.countDown();
+		}
+	}
+
+	private class NodeActor implements Runnable {
+
+		private final Router node;
+		private final Queue<DistanceVectorUpdate> mailbox = new ConcurrentLinkedQueue<DistanceVectorUpdate>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		NodeActor(Router node) {
+			this.node = node;
+		}
+
+		/**
+		 * @param schedule whether to schedule the receiving actor, else it is scheduled by the caller later.
+		 */
+		void deliver(DistanceVectorUpdate message, boolean schedule) {
+			pendingMessages.incrementAndGet();
+			sentMessages.incrementAndGet();
+			mailbox.add(message);
+			if (schedule) {
+				schedule();
+			}
+		}
+
+		private void schedule() {
+			if (failure.get() == null && scheduled.compareAndSet(false, true)) {
+				scheduledActors.incrementAndGet();
+				pool.execute(this);
+			}
+		}
+
+		/**
+		 * Sends the changed entries of the distance vector to every neighbour. Only called by the thread running
+		 * this actor.
+		 */
+		void advertise() {
+			DistanceVectorUpdate update = node.takeDistanceVectorUpdate();
+			if (update != null) {
+				send(update, true);
+			}
+		}
+
+		void send(DistanceVectorUpdate update, boolean schedule) {
+			for (Integer neighbour : node.getNeighbours()) {
+				DistanceVectorUpdate message = updateForNeighbour(update, neighbour);
+				if (message.size() > 0) {
+					actors.get(neighbour).deliver(message, schedule);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			long processed = 0;
+			try {
+				DistanceVectorUpdate message;
+				while ((message = mailbox.poll()) != null) {
+					// counted before it is handled, a message which throws is discounted as well
+					processed++;
+					node.receiveDistanceVectorUpdate(message);
+				}
+				// messages sent here are counted before the processed ones are discounted, so the pending
+				// count cannot touch zero while the network is still changing
+				if (processed > 0 && node.runTheAlgorithm()) {
+					advertise();
+				}
+			} catch (Throwable e) {
+				failure.compareAndSet(null, e);
+				converged.countDown();
+			} finally {
+				scheduled.set(false);
+				if (!mailbox.isEmpty()) {
+					schedule();
+				}
+				if (processed > 0) {
+					messageProcessed(processed);
+				}
+				scheduledActors.decrementAndGet();
+			}
+		}
+	}
+}
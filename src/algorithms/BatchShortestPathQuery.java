@@ -0,0 +1,145 @@
+package algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.Vertex;
+
+/**
+ * Answers a batch of independent source/destination queries, or the rows of a distance matrix, in parallel
+ * with one {@link ShortestPathAlgorithm} instance.
+ * 
+ * The algorithm and its compressed graph are shared read-only by all workers. Every worker thread keeps
+ * its own {@link QueryContext}, created on first use and reused for all the queries it runs, so the batch
+ * neither contends on shared state nor allocates a workspace per query.
+ * 
+ * @author mehmet
+ *
+ */
+public class BatchShortestPathQuery {
+
+	// queries handled by one task without splitting further
+	private static final int MIN_QUERIES_PER_TASK = 16;
+
+	private final ShortestPathAlgorithm algorithm;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<QueryContext> contexts;
+
+	public BatchShortestPathQuery(ShortestPathAlgorithm algorithm) {
+		this(algorithm, new ForkJoinPool());
+	}
+
+	public BatchShortestPathQuery(final ShortestPathAlgorithm algorithm, ForkJoinPool pool) {
+		this.algorithm = algorithm;
+		this.pool = pool;
+		this.contexts = new ThreadLocal<QueryContext>() {
+			@Override
+			protected QueryContext initialValue() {
+				return algorithm.createQueryContext();
+			}
+		};
+	}
+
+	/**
+	 * Finds the shortest path between sources[i] and destinations[i] for every i.
+	 * 
+	 * @return results in the order of the queries.
+	 * @throws Exception the first exception thrown by any of the queries, e.g. a negative cycle reported by Bellman-Ford.
+	 */
+	public ShortestPathResult[] findShortestPaths(final Vertex[] sources, final Vertex[] destinations) throws Exception {
+		if (sources.length != destinations.length) {
+			throw new IllegalArgumentException("Every source needs exactly one destination.");
+		}
+		final ShortestPathResult[] results = new ShortestPathResult[sources.length];
+		run(sources.length, new Query() {
+			@Override
+			public void run(QueryContext context, int i) throws Exception {
+				results[i] = algorithm.findShortestPathBetween(context, sources[i], destinations[i]);
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Computes the distances from every source to every target with one search per source, the searches
+	 * of different sources running in parallel.
+	 */
+	public DistanceMatrix computeDistanceMatrix(final Vertex[] sources, Vertex[] targets) throws Exception {
+		final DistanceMatrix matrix = new DistanceMatrix(sources.length, targets.length);
+		final int[] sourceIndexes = algorithm.findVertexIndexes(sources);
+		final int[] targetIndexes = algorithm.findVertexIndexes(targets);
+		run(sources.length, new Query() {
+			@Override
+			public void run(QueryContext context, int row) throws Exception {
+				algorithm.fillDistanceMatrixRow(context, matrix, row, sourceIndexes[row], targetIndexes);
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * Stops the worker threads of the pool. The batch cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private void run(int queryCount, Query query) throws Exception {
+		int queriesPerTask = Math.max(MIN_QUERIES_PER_TASK, queryCount / (pool.getParallelism() * 8));
+		try {
+			pool.invoke(new QueryTask(query, 0, queryCount, queriesPerTask));
+		} catch (QueryFailedException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	private interface Query {
+		void run(QueryContext context, int i) throws Exception;
+	}
+
+	private class QueryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -2034982305525736241L;
+
+		private final Query query;
+		private final int from;
+		private final int to;
+		private final int queriesPerTask;
+
+		QueryTask(Query query, int from, int to, int queriesPerTask) {
+			this.query = query;
+			this.from = from;
+			this.to = to;
+			this.queriesPerTask = queriesPerTask;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= queriesPerTask) {
+				QueryContext context = contexts.get();
+				for (int i = from; i < to; i++) {
+					try {
+						query.run(context, i);
+					} catch (RuntimeException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new QueryFailedException(e);
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new QueryTask(query, from, middle, queriesPerTask), new QueryTask(query, middle, to, queriesPerTask));
+		}
+	}
+
+	// carries checked exceptions of the queries out of the fork/join tasks
+	private static class QueryFailedException extends RuntimeException {
+
+		private static final long serialVersionUID = 5310740021657321932L;
+
+		QueryFailedException(Exception cause) {
+			super(cause);
+		}
+	}
+}
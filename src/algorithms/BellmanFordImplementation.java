@@ -1,8 +1,7 @@
 package algorithms;
 
-import model.Edge;
+import model.CompressedGraph;
 import model.Graph;
-import model.Vertex;
 
 /**
  * From: http://www.csupomona.edu/~ftang/courses/CS241/notes/graph%20algorithms%201.htm
@@ -20,8 +19,10 @@ import model.Vertex;
  * 
  * @author mehmet
  *
- * A negative cycle in the graph causes {@link ShortestPathAlgorithm.previous} array to contain cycles 
- * which causes produceResults method to get into an infinite loop.
+ * Each round relaxes every edge of the compressed graph once. After V - 1 rounds all shortest paths are
+ * found, and the algorithm stops earlier as soon as a round changes nothing. If the V-th round can still
+ * improve a distance, a negative cycle is reachable from the source: the {@link QueryContext#getPrevious(int)}
+ * chain then contains the cycle, which is reported through {@link NegativeCycleException} instead of a result.
  * 
  */
 public class BellmanFordImplementation extends ShortestPathAlgorithm {
@@ -30,23 +31,91 @@ public class BellmanFordImplementation extends ShortestPathAlgorithm {
 		super(graph);
 	}
 
-	@Override
-	public void findShortestPathBetween(Vertex source, Vertex destination) throws Exception {
-		super.initialize(source, destination);
+	public BellmanFordImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+	}
 
-		super.runTheAlgorithm();
+	@Override
+	protected void runTheAlgorithm(QueryContext context) throws Exception {
+		int vertexCount = compressedGraph.getVertexCount();
+		for (int round = 1; round < vertexCount; round++) {
+			if (relaxAllEdges(context) < 0) {
+				return;
+			}
+		}
 
 		// Bellman-Ford negative cycle detection
-		for (Edge edge : graph.getEdges()) {
-			double sourceDistance = distances[findVertexIndex(edge.getSource())];
-			double edgeCost = edgeCostsMap.get(String.format("%d-%d", edge.getSource().getId(), edge.getDestination().getId()));
-			double destinationDistance = distances[findVertexIndex(edge.getDestination())];
-			if (sourceDistance + edgeCost < destinationDistance) {
-				throw new NegativeCycleException();
+		int changedIndex = relaxAllEdges(context);
+		if (changedIndex >= 0) {
+			throw new NegativeCycleException(findCycle(context, changedIndex));
+		}
+	}
+
+	/**
+	 * Relaxes every edge whose source has been reached once.
+	 * 
+	 * @return index of a vertex whose distance decreased, -1 if the round changed nothing.
+	 */
+	protected int relaxAllEdges(QueryContext context) {
+		int changedIndex = -1;
+		for (int index = 0; index < compressedGraph.getVertexCount(); index++) {
+			double sourceDistance = context.getDistance(index);
+			if (sourceDistance == Double.MAX_VALUE) {
+				continue;
+			}
+			context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				double alt = sourceDistance + compressedGraph.getWeight(edge);
+				if (alt < context.getDistance(neighbourIndex)) {
+					context.update(neighbourIndex, alt, index);
+					changedIndex = neighbourIndex;
+				}
 			}
 		}
+		return changedIndex;
+	}
 
-		produceResult(source, destination);
+	/**
+	 * Looks for a cycle in the graph formed by the previous vertexes, starting with the walk back from the
+	 * given vertex. Every vertex has at most one previous vertex, so each walk either ends at the source or
+	 * runs into a cycle, and each vertex needs to be walked over only once. Any such cycle is negative.
+	 * 
+	 * @return ids of the vertexes on the cycle in path order, the first one repeated at the end, or null if
+	 *         the previous vertexes contain no cycle.
+	 */
+	protected int[] findCycle(QueryContext context, int startIndex) {
+		int vertexCount = compressedGraph.getVertexCount();
+		// number of the walk which visited each vertex, at most before if none of this check did
+		int before = context.startWalks(vertexCount + 1);
+		int[] walks = context.getWalkStamps();
+		for (int walk = before + 1; walk <= before + vertexCount + 1; walk++) {
+			int start = walk == before + 1 ? startIndex : walk - before - 2;
+			int index = start;
+			while (index != -1 && walks[index] <= before) {
+				walks[index] = walk;
+				index = context.getPrevious(index);
+			}
+			if (index != -1 && walks[index] == walk) {
+				return cycleThrough(context, index);
+			}
+		}
+		return null;
+	}
+
+	private int[] cycleThrough(QueryContext context, int cycleIndex) {
+		int length = 1;
+		for (int index = context.getPrevious(cycleIndex); index != cycleIndex; index = context.getPrevious(index)) {
+			length++;
+		}
+		// previous vertexes lead backwards, so the cycle is filled from the end
+		int[] cycle = new int[length + 1];
+		int index = cycleIndex;
+		for (int position = length; position >= 0; position--) {
+			cycle[position] = compressedGraph.getId(index);
+			index = context.getPrevious(index);
+		}
+		return cycle;
 	}
 	
 	public class NegativeCycleException extends Exception
@@ -55,9 +124,41 @@ public class BellmanFordImplementation extends ShortestPathAlgorithm {
 		 * 
 		 */
 		private static final long serialVersionUID = 4623012609954460507L;
+
+		private final int[] cycle;
 		
 		public NegativeCycleException() {
-			super("Negative cycle found in the graph.");
+			this(null);
+		}
+
+		/**
+		 * @param cycle ids of the vertexes on the cycle, the first one repeated at the end.
+		 */
+		public NegativeCycleException(int[] cycle) {
+			super(describe(cycle));
+			this.cycle = cycle;
+		}
+
+		/**
+		 * @return ids of the vertexes on the cycle in path order with the first one repeated at the end,
+		 *         null if the cycle is not known.
+		 */
+		public int[] getCycle() {
+			return cycle;
+		}
+	}
+
+	private static String describe(int[] cycle) {
+		if (cycle == null) {
+			return "Negative cycle found in the graph.";
+		}
+		StringBuilder builder = new StringBuilder("Negative cycle found in the graph: ");
+		for (int i = 0; i < cycle.length; i++) {
+			if (i > 0) {
+				builder.append('-');
+			}
+			builder.append(cycle[i]);
 		}
+		return builder.toString();
 	}
 }
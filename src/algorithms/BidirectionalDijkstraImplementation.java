@@ -0,0 +1,125 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Bidirectional Dijkstra: one search runs forward from the source over the graph and another runs
+ * backward from the destination over the reversed graph, each in its own {@link QueryContext}.
+ * 
+ * Whenever a search relaxes an edge into a vertex the other search has reached, the combined length is a
+ * candidate for the shortest path. The searches stop once the smallest keys of both heaps add up to at
+ * least the best candidate, since no path through an unsettled vertex can be shorter. Both searches
+ * settle roughly the vertexes within half the distance, which on large sparse graphs is far fewer than a
+ * single search settles.
+ * 
+ * One to many queries have no single destination to search back from and run the plain heap search.
+ * 
+ * @author mehmet
+ *
+ */
+public class BidirectionalDijkstraImplementation extends HeapDijkstraImplementation {
+
+	// reversed edges, built once per graph
+	private final CompressedGraph reverseGraph;
+
+	public BidirectionalDijkstraImplementation(Graph graph) {
+		super(graph);
+		reverseGraph = compressedGraph.getReverse();
+	}
+
+	public BidirectionalDijkstraImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+		reverseGraph = compressedGraph.getReverse();
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		int indexOfSource = context.getIndexOfSource();
+		int indexOfDestination = context.getIndexOfDestination();
+		if (indexOfDestination < 0) {
+			super.runTheAlgorithm(context);
+			return;
+		}
+
+		QueryContext backward = context.getBackwardContext();
+		backward.reset(indexOfDestination, indexOfSource);
+		IndexedHeap forwardHeap = context.getHeap();
+		IndexedHeap backwardHeap = backward.getHeap();
+		forwardHeap.insertOrDecrease(indexOfSource, 0);
+		backwardHeap.insertOrDecrease(indexOfDestination, 0);
+
+		if (indexOfSource == indexOfDestination) {
+			context.updateMeeting(indexOfSource, 0);
+		}
+
+		while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+			if (forwardHeap.peekKey() + backwardHeap.peekKey() >= context.getMeetingLength()) {
+				break;
+			}
+			if (forwardHeap.peekKey() <= backwardHeap.peekKey()) {
+				step(compressedGraph, context, backward, context);
+			} else {
+				step(reverseGraph, backward, context, context);
+			}
+		}
+	}
+
+	/**
+	 * Settles the closest vertex of one search and relaxes its edges, checking each of them for a shorter
+	 * connection to the other search. The best connection is recorded in the forward context.
+	 */
+	private void step(CompressedGraph graph, QueryContext search, QueryContext other, QueryContext forward) {
+		IndexedHeap heap = search.getHeap();
+		int index = heap.poll();
+		search.settle(index);
+
+		double distance = search.getDistance(index);
+		search.addRelaxedEdges(graph.getEdgesEnd(index) - graph.getEdgesBegin(index));
+		for (int edge = graph.getEdgesBegin(index), end = graph.getEdgesEnd(index); edge < end; edge++) {
+			int neighbourIndex = graph.getTarget(edge);
+			double alt = distance + graph.getWeight(edge);
+			if (alt < search.getDistance(neighbourIndex) && !search.isSettled(neighbourIndex)) {
+				search.update(neighbourIndex, alt, index);
+				heap.insertOrDecrease(neighbourIndex, alt);
+			}
+			double otherDistance = other.getDistance(neighbourIndex);
+			if (otherDistance != Double.MAX_VALUE && alt + otherDistance < forward.getMeetingLength()) {
+				forward.updateMeeting(neighbourIndex, alt + otherDistance);
+			}
+		}
+	}
+
+	@Override
+	protected ShortestPathResult produceResult(QueryContext context) {
+		QueryContext backward = context.getBackwardContext();
+		int sourceId = compressedGraph.getId(context.getIndexOfSource());
+		int destinationId = compressedGraph.getId(context.getIndexOfDestination());
+		int settledCount = context.getSettledCount() + backward.getSettledCount();
+		int meetingIndex = context.getMeetingIndex();
+		if (meetingIndex < 0) {
+			return ShortestPathResult.unreachable(sourceId, destinationId, settledCount);
+		}
+
+		// source .. meeting vertex from the forward search, meeting vertex .. destination from the backward one
+		int forwardLength = 0;
+		for (int index = meetingIndex; index != -1; index = context.getPrevious(index)) {
+			forwardLength++;
+		}
+		int backwardLength = 0;
+		for (int index = backward.getPrevious(meetingIndex); index != -1; index = backward.getPrevious(index)) {
+			backwardLength++;
+		}
+		int[] path = new int[forwardLength + backwardLength];
+		int position = forwardLength;
+		for (int index = meetingIndex; index != -1; index = context.getPrevious(index)) {
+			path[--position] = compressedGraph.getId(index);
+		}
+		position = forwardLength;
+		for (int index = backward.getPrevious(meetingIndex); index != -1; index = backward.getPrevious(index)) {
+			path[position++] = compressedGraph.getId(index);
+		}
+		double length = context.getDistance(meetingIndex) + backward.getDistance(meetingIndex);
+		return new ShortestPathResult(sourceId, destinationId, length, path, settledCount);
+	}
+}
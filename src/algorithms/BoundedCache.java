@@ -0,0 +1,218 @@
+package algorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import algorithms.ShortestPathCache.EvictionPolicy;
+
+/**
+ * Map with a fixed capacity which evicts an entry when a new one does not fit, every operation in constant
+ * time.
+ *
+ * Entries are kept in buckets of equal access counts, the buckets in ascending order of their counts and
+ * the entries of a bucket from the least to the most recently used. An access moves an entry to the end
+ * of the next bucket, so the first entry of the first bucket is the least frequently used one and among
+ * those the least recently used. With {@link EvictionPolicy#LRU} all the entries stay in a single bucket
+ * and an access only moves an entry to its end.
+ *
+ * Not thread safe.
+ *
+ * @author mehmet
+ *
+ */
+class BoundedCache<K, V> {
+
+	private final int capacity;
+	private final EvictionPolicy policy;
+	private final Map<K, Entry<K, V>> entries;
+	// bucket of the smallest access count, null if the cache is empty
+	private Bucket<K, V> firstBucket;
+	private long evictionCount;
+
+	BoundedCache(int capacity, EvictionPolicy policy) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative.");
+		}
+		this.capacity = capacity;
+		this.policy = policy;
+		this.entries = new HashMap<K, Entry<K, V>>();
+	}
+
+	/**
+	 * @return value of the key, null if it is not in the cache.
+	 */
+	V get(K key) {
+		Entry<K, V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		touch(entry);
+		return entry.value;
+	}
+
+	/**
+	 * Adds the value, or replaces the one of the key, evicting an entry if the cache is full.
+	 */
+	void put(K key, V value) {
+		if (capacity == 0) {
+			return;
+		}
+		Entry<K, V> entry = entries.get(key);
+		if (entry != null) {
+			entry.value = value;
+			touch(entry);
+			return;
+		}
+		if (entries.size() == capacity) {
+			Entry<K, V> victim = firstBucket.first;
+			unlink(victim);
+			entries.remove(victim.key);
+			evictionCount++;
+		}
+		entry = new Entry<K, V>(key, value);
+		entries.put(key, entry);
+		if (firstBucket == null || firstBucket.count != 1) {
+			Bucket<K, V> bucket = new Bucket<K, V>(1);
+			bucket.next = firstBucket;
+			if (firstBucket != null) {
+				firstBucket.previous = bucket;
+			}
+			firstBucket = bucket;
+		}
+		append(firstBucket, entry);
+	}
+
+	/**
+	 * Removes every entry whose value meets the condition.
+	 *
+	 * @return number of entries removed.
+	 */
+	int removeIf(Condition<V> condition) {
+		int removed = 0;
+		for (Bucket<K, V> bucket = firstBucket; bucket != null;) {
+			// the bucket goes away with its last entry
+			Bucket<K, V> next = bucket.next;
+			for (Entry<K, V> entry = bucket.first; entry != null;) {
+				Entry<K, V> nextEntry = entry.next;
+				if (condition.holds(entry.value)) {
+					unlink(entry);
+					entries.remove(entry.key);
+					removed++;
+				}
+				entry = nextEntry;
+			}
+			bucket = next;
+		}
+		return removed;
+	}
+
+	void clear() {
+		entries.clear();
+		firstBucket = null;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long getEvictionCount() {
+		return evictionCount;
+	}
+
+	private void touch(Entry<K, V> entry) {
+		Bucket<K, V> bucket = entry.bucket;
+		if (policy == EvictionPolicy.LRU) {
+			if (bucket.last != entry) {
+				unlink(entry);
+				append(bucket, entry);
+			}
+			return;
+		}
+		int count = bucket.count + 1;
+		Bucket<K, V> target = bucket.next;
+		if (target == null || target.count != count) {
+			target = new Bucket<K, V>(count);
+			target.previous = bucket;
+			target.next = bucket.next;
+			if (bucket.next != null) {
+				bucket.next.previous = target;
+			}
+			bucket.next = target;
+		}
+		unlink(entry);
+		append(target, entry);
+	}
+
+	private void append(Bucket<K, V> bucket, Entry<K, V> entry) {
+		entry.bucket = bucket;
+		entry.previous = bucket.last;
+		entry.next = null;
+		if (bucket.last == null) {
+			bucket.first = entry;
+		} else {
+			bucket.last.next = entry;
+		}
+		bucket.last = entry;
+	}
+
+	/**
+	 * Takes the entry out of its bucket and drops the bucket if that was its last entry.
+	 */
+	private void unlink(Entry<K, V> entry) {
+		Bucket<K, V> bucket = entry.bucket;
+		if (entry.previous == null) {
+			bucket.first = entry.next;
+		} else {
+			entry.previous.next = entry.next;
+		}
+		if (entry.next == null) {
+			bucket.last = entry.previous;
+		} else {
+			entry.next.previous = entry.previous;
+		}
+		entry.previous = null;
+		entry.next = null;
+
+		if (bucket.first == null) {
+			if (bucket.previous == null) {
+				firstBucket = bucket.next;
+			} else {
+				bucket.previous.next = bucket.next;
+			}
+			if (bucket.next != null) {
+				bucket.next.previous = bucket.previous;
+			}
+		}
+	}
+
+	interface Condition<V> {
+		boolean holds(V value);
+	}
+
+	private static class Entry<K, V> {
+
+		final K key;
+		V value;
+		Bucket<K, V> bucket;
+		Entry<K, V> previous;
+		Entry<K, V> next;
+
+		Entry(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private static class Bucket<K, V> {
+
+		final int count;
+		Entry<K, V> first;
+		Entry<K, V> last;
+		Bucket<K, V> previous;
+		Bucket<K, V> next;
+
+		Bucket(int count) {
+			this.count = count;
+		}
+	}
+}
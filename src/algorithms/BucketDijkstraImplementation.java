@@ -0,0 +1,96 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Edge;
+import model.Graph;
+
+/**
+ * Dijkstra's algorithm for graphs whose edge weights are non-negative ints, such as travel times in
+ * deciseconds, driven by a monotone {@link BucketQueue} instead of a comparison heap: Dial's buckets when
+ * the largest weight is small, a radix heap otherwise. Inserting and decreasing a key cost O(1) and the
+ * polls together cost O(V + maxWeight * V) or O(V log maxWeight), so queries run in near linear time.
+ *
+ * Distances are added up in long, so they never overflow, and stored in the context as doubles, which
+ * hold them exactly up to 2^53.
+ *
+ * {@link DijkstraImplementation#create(Graph)} picks this algorithm whenever the weights allow it.
+ *
+ * @author mehmet
+ *
+ */
+public class BucketDijkstraImplementation extends DijkstraImplementation {
+
+	private final int maxWeight;
+
+	public BucketDijkstraImplementation(Graph graph) {
+		super(graph);
+		this.maxWeight = findMaxWeight();
+	}
+
+	public BucketDijkstraImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+		this.maxWeight = findMaxWeight();
+	}
+
+	/**
+	 * @return true if every edge weight of the graph is a whole number from 0 to Integer.MAX_VALUE.
+	 */
+	public static boolean supports(Graph graph) {
+		if (graph.getEdges() == null) {
+			return true;
+		}
+		for (Edge edge : graph.getEdges()) {
+			double weight = edge.getWeight();
+			// -0.0 is stored as a double, so it is ruled out along with fractions and NaN
+			if (weight < 0 || Double.doubleToLongBits((int) weight) != Double.doubleToLongBits(weight)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static boolean supports(CompressedGraph compressedGraph) {
+		return compressedGraph.getWeightType() == CompressedGraph.WeightType.INT && compressedGraph.getMinWeight() >= 0;
+	}
+
+	private int findMaxWeight() {
+		if (compressedGraph.getWeightType() != CompressedGraph.WeightType.INT) {
+			throw new IllegalArgumentException("Bucket Dijkstra Algorithm needs whole number edge weights in the range of int.");
+		}
+		int largest = 0;
+		for (int edge = 0; edge < compressedGraph.getEdgeCount(); edge++) {
+			largest = Math.max(largest, compressedGraph.getIntWeight(edge));
+		}
+		return largest;
+	}
+
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		BucketQueue queue = context.getBucketQueue(maxWeight);
+		queue.insertOrDecrease(context.getIndexOfSource(), 0);
+		while (!queue.isEmpty()) {
+			int index = queue.poll();
+			context.settle(index);
+
+			//terminate the algorithm here since the shortest paths to the destination (or every target) are found.
+			if (context.isSearchComplete()) {
+				break;
+			}
+
+			long distance = queue.getLastKey();
+			context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				long alt = distance + compressedGraph.getIntWeight(edge);
+				if (alt < context.getDistance(neighbourIndex) && !context.isSettled(neighbourIndex)) {
+					context.update(neighbourIndex, alt, index);
+					queue.insertOrDecrease(neighbourIndex, alt);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Monotone priority queue of vertex indexes keyed by integer distances: a key is never smaller than the
+ * key polled last, which is all Dijkstra's algorithm needs on non-negative weights. Buckets of vertexes
+ * replace the comparisons of a heap.
+ *
+ * Each bucket is a doubly linked list threaded through primitive arrays sized for the vertex count, so a
+ * key is decreased by moving the vertex to another bucket in O(1) and nothing is allocated per operation.
+ * Keys are longs, so sums of int weights never overflow.
+ *
+ * @author mehmet
+ *
+ */
+public abstract class BucketQueue {
+
+	// first vertex of each bucket, -1 if the bucket is empty
+	protected final int[] heads;
+	private final int[] next;
+	private final int[] previous;
+	// bucket of each vertex, -1 if it is not in the queue
+	private final int[] buckets;
+	protected final long[] keys;
+	private final int maxWeight;
+	private int size;
+	// key of the vertex polled last, no key in the queue is smaller
+	protected long lastKey;
+	// inserts, decreases and polls since the queue was last cleared
+	private long operationCount;
+
+	protected BucketQueue(int capacity, int bucketCount, int maxWeight) {
+		heads = new int[bucketCount];
+		next = new int[capacity];
+		previous = new int[capacity];
+		buckets = new int[capacity];
+		keys = new long[capacity];
+		this.maxWeight = maxWeight;
+		Arrays.fill(heads, -1);
+		Arrays.fill(buckets, -1);
+	}
+
+	/**
+	 * @return Dial's buckets for weights up to {@link DialQueue#MAX_WEIGHT}, a radix heap for larger ones.
+	 */
+	public static BucketQueue create(int capacity, int maxWeight) {
+		if (maxWeight <= DialQueue.MAX_WEIGHT) {
+			return new DialQueue(capacity, maxWeight);
+		}
+		return new RadixHeap(capacity, maxWeight);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int vertex) {
+		return buckets[vertex] >= 0;
+	}
+
+	/**
+	 * @return the largest edge weight the queue was made for.
+	 */
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Adds the vertex with the given key, or lowers its key if it is already in the queue. The key must not
+	 * be smaller than the key polled last, nor exceed it by more than the largest edge weight.
+	 */
+	public void insertOrDecrease(int vertex, long key) {
+		if (buckets[vertex] >= 0) {
+			if (key >= keys[vertex]) {
+				return;
+			}
+			unlink(vertex);
+		} else {
+			size++;
+		}
+		keys[vertex] = key;
+		operationCount++;
+		link(vertex, bucketOf(key));
+	}
+
+	/**
+	 * Removes and returns a vertex with the smallest key.
+	 */
+	public int poll() {
+		int vertex = heads[findSmallestBucket()];
+		unlink(vertex);
+		size--;
+		lastKey = keys[vertex];
+		operationCount++;
+		return vertex;
+	}
+
+	/**
+	 * @return key of the vertex polled last, 0 before the first poll.
+	 */
+	public long getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Empties the queue, walking the buckets only if vertexes are left in it.
+	 */
+	public void clear() {
+		for (int bucket = 0; size > 0 && bucket < heads.length; bucket++) {
+			for (int vertex = heads[bucket]; vertex >= 0; vertex = next[vertex]) {
+				buckets[vertex] = -1;
+				size--;
+			}
+			heads[bucket] = -1;
+		}
+		lastKey = 0;
+		operationCount = 0;
+	}
+
+	/**
+	 * @return number of inserts, key decreases and polls since the queue was created or last cleared.
+	 */
+	public long getOperationCount() {
+		return operationCount;
+	}
+
+	/**
+	 * @return the bucket a vertex with the given key belongs to, given the key polled last.
+	 */
+	protected abstract int bucketOf(long key);
+
+	/**
+	 * @return a non-empty bucket whose vertexes all have the smallest key in the queue, which is not empty.
+	 */
+	protected abstract int findSmallestBucket();
+
+	protected void link(int vertex, int bucket) {
+		int head = heads[bucket];
+		next[vertex] = head;
+		previous[vertex] = -1;
+		if (head >= 0) {
+			previous[head] = vertex;
+		}
+		heads[bucket] = vertex;
+		buckets[vertex] = bucket;
+	}
+
+	protected void unlink(int vertex) {
+		int before = previous[vertex];
+		int after = next[vertex];
+		if (before >= 0) {
+			next[before] = after;
+		} else {
+			heads[buckets[vertex]] = after;
+		}
+		if (after >= 0) {
+			previous[after] = before;
+		}
+		buckets[vertex] = -1;
+	}
+
+	protected int nextInBucket(int vertex) {
+		return next[vertex];
+	}
+}
@@ -0,0 +1,163 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Point to point queries on a {@link ContractionHierarchy} built once per graph.
+ *
+ * The forward search from the source follows only upward edges and the backward search from the
+ * destination only reversed downward edges, so both climb the hierarchy and meet at the most important
+ * vertex of the shortest path. A search stops once its smallest key reaches the best connection found.
+ * Stall on demand skips relaxing a vertex which is reached shorter through a more important vertex, since
+ * its tentative distance cannot be the right one. On road networks each search settles a few hundred
+ * vertexes even for continental graphs. The shortcuts on the path found are unpacked into the edges of the
+ * original graph and the cost is the sum of their weights taken from the source on, like the one of
+ * {@link DijkstraImplementation}. Only when several paths are equally short in exact arithmetic may the
+ * two costs still differ in the last bits, as the algorithms may pick different ones.
+ *
+ * Preprocessing takes a while and the hierarchy is only valid for the graph it was built from. One to many
+ * queries have no single destination to search back from and run the plain heap search.
+ *
+ * @author mehmet
+ *
+ */
+public class ContractionHierarchiesImplementation extends HeapDijkstraImplementation {
+
+	private final ContractionHierarchy hierarchy;
+
+	public ContractionHierarchiesImplementation(Graph graph) {
+		super(graph);
+		hierarchy = new ContractionHierarchy(compressedGraph);
+	}
+
+	public ContractionHierarchiesImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+		hierarchy = new ContractionHierarchy(compressedGraph);
+	}
+
+	/**
+	 * @return number of shortcuts the preprocessing added to the graph.
+	 */
+	public int getShortcutCount() {
+		return hierarchy.getShortcutCount();
+	}
+
+	/**
+	 * @return position of the vertex in the contraction order, more important vertexes have higher ranks.
+	 */
+	public int getRank(int index) {
+		return hierarchy.getRank(index);
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		int indexOfSource = context.getIndexOfSource();
+		int indexOfDestination = context.getIndexOfDestination();
+		if (indexOfDestination < 0) {
+			super.runTheAlgorithm(context);
+			return;
+		}
+
+		QueryContext backward = context.getBackwardContext();
+		backward.reset(indexOfDestination, indexOfSource);
+		IndexedHeap forwardHeap = context.getHeap();
+		IndexedHeap backwardHeap = backward.getHeap();
+		forwardHeap.insertOrDecrease(indexOfSource, 0);
+		backwardHeap.insertOrDecrease(indexOfDestination, 0);
+
+		if (indexOfSource == indexOfDestination) {
+			context.updateMeeting(indexOfSource, 0);
+		}
+
+		while (true) {
+			boolean forwardOpen = !forwardHeap.isEmpty() && forwardHeap.peekKey() < context.getMeetingLength();
+			boolean backwardOpen = !backwardHeap.isEmpty() && backwardHeap.peekKey() < context.getMeetingLength();
+			if (!forwardOpen && !backwardOpen) {
+				break;
+			}
+			if (forwardOpen && (!backwardOpen || forwardHeap.peekKey() <= backwardHeap.peekKey())) {
+				step(context, backward, context, true);
+			} else {
+				step(backward, context, context, false);
+			}
+		}
+	}
+
+	/**
+	 * Settles the closest vertex of one search and relaxes its edges into more important vertexes, checking
+	 * each of them for a shorter connection to the other search. The best connection is recorded in the
+	 * forward context.
+	 */
+	private void step(QueryContext search, QueryContext other, QueryContext forward, boolean upward) {
+		IndexedHeap heap = search.getHeap();
+		int index = heap.poll();
+		search.settle(index);
+		double distance = search.getDistance(index);
+
+		// an edge from a more important vertex into this one, found by the same search, proves the
+		// tentative distance wrong
+		int stallBegin = upward ? hierarchy.getDownBegin(index) : hierarchy.getUpBegin(index);
+		int stallEnd = upward ? hierarchy.getDownEnd(index) : hierarchy.getUpEnd(index);
+		for (int position = stallBegin; position < stallEnd; position++) {
+			int higher = upward ? hierarchy.getDownTarget(position) : hierarchy.getUpTarget(position);
+			double weight = upward ? hierarchy.getDownWeight(position) : hierarchy.getUpWeight(position);
+			if (search.getDistance(higher) != Double.MAX_VALUE && search.getDistance(higher) + weight < distance) {
+				return;
+			}
+		}
+
+		int begin = upward ? hierarchy.getUpBegin(index) : hierarchy.getDownBegin(index);
+		int end = upward ? hierarchy.getUpEnd(index) : hierarchy.getDownEnd(index);
+		search.addRelaxedEdges(end - begin);
+		for (int position = begin; position < end; position++) {
+			int neighbourIndex = upward ? hierarchy.getUpTarget(position) : hierarchy.getDownTarget(position);
+			double alt = distance + (upward ? hierarchy.getUpWeight(position) : hierarchy.getDownWeight(position));
+			if (alt < search.getDistance(neighbourIndex) && !search.isSettled(neighbourIndex)) {
+				search.update(neighbourIndex, alt, index);
+				heap.insertOrDecrease(neighbourIndex, alt);
+			}
+			double otherDistance = other.getDistance(neighbourIndex);
+			if (otherDistance != Double.MAX_VALUE && alt + otherDistance < forward.getMeetingLength()) {
+				forward.updateMeeting(neighbourIndex, alt + otherDistance);
+			}
+		}
+	}
+
+	@Override
+	protected ShortestPathResult produceResult(QueryContext context) {
+		QueryContext backward = context.getBackwardContext();
+		int sourceId = compressedGraph.getId(context.getIndexOfSource());
+		int destinationId = compressedGraph.getId(context.getIndexOfDestination());
+		int settledCount = context.getSettledCount() + backward.getSettledCount();
+		int meetingIndex = context.getMeetingIndex();
+		if (meetingIndex < 0) {
+			return ShortestPathResult.unreachable(sourceId, destinationId, settledCount);
+		}
+
+		// vertexes of the upward part from the meeting vertex back to the source
+		IntList upwardPart = new IntList();
+		for (int index = meetingIndex; index != -1; index = context.getPrevious(index)) {
+			upwardPart.add(index);
+		}
+
+		// the shortcut weights are sums rounded in another order, so the length is added up again from the
+		// source over the original edges, as Dijkstra's algorithm does
+		IntList path = new IntList();
+		IntList stack = new IntList();
+		double length = 0;
+		path.add(context.getIndexOfSource());
+		for (int i = upwardPart.size() - 1; i > 0; i--) {
+			length = hierarchy.unpack(hierarchy.findUpEdge(upwardPart.get(i), upwardPart.get(i - 1)), path, stack, length);
+		}
+		for (int index = meetingIndex; backward.getPrevious(index) != -1; index = backward.getPrevious(index)) {
+			length = hierarchy.unpack(hierarchy.findDownEdge(index, backward.getPrevious(index)), path, stack, length);
+		}
+
+		int[] ids = new int[path.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = compressedGraph.getId(path.get(i));
+		}
+		return new ShortestPathResult(sourceId, destinationId, length, ids, settledCount);
+	}
+}
@@ -0,0 +1,437 @@
+package algorithms;
+
+import java.util.Arrays;
+
+import model.CompressedGraph;
+
+/**
+ * The preprocessed form of a graph used by {@link ContractionHierarchiesImplementation}.
+ *
+ * Vertexes are contracted one by one in the order of their importance. Contracting a vertex removes it
+ * from the remaining graph and adds a shortcut u->w for each pair of remaining neighbours u->v->w, unless a
+ * witness search finds a path from u to w of at most the same length which avoids v. The order comes from
+ * a priority queue keyed by the edge difference (shortcuts added minus edges removed) plus the number of
+ * already contracted neighbours, which spreads the contraction evenly over the graph. Priorities are
+ * recomputed lazily when a vertex comes out of the queue, and for the neighbours of each contracted vertex.
+ *
+ * The rank of a vertex is its position in the order. Every edge of the graph and every shortcut then
+ * points either upward, to a vertex of higher rank, or downward. Upward edges are kept at their source for
+ * the forward search, downward edges reversed at their target for the backward search, both in compressed
+ * sparse row form. A shortcut remembers the two edges it replaces, so a path over shortcuts can be unpacked
+ * into the edges of the original graph.
+ *
+ * @author mehmet
+ *
+ */
+class ContractionHierarchy {
+
+	// a witness search gives up after settling this many vertexes and the shortcut is added, which is
+	// never wrong, only a little less sparse. Estimating a priority gets by with a shorter search.
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+	private static final int SIMULATED_WITNESS_SETTLE_LIMIT = 20;
+
+	private final int vertexCount;
+	private final int[] ranks;
+
+	// every edge and shortcut, shortcuts have the two edges they replace as halves, original edges -1
+	private int[] edgeSources;
+	private int[] edgeTargets;
+	private double[] edgeWeights;
+	private int[] firstHalves;
+	private int[] secondHalves;
+	private int edgeCount;
+	private int shortcutCount;
+
+	// upward edges at their source
+	private final int[] upOffsets;
+	private final int[] upTargets;
+	private final double[] upWeights;
+	private final int[] upEdges;
+	// downward edges reversed, at their target pointing to their source
+	private final int[] downOffsets;
+	private final int[] downTargets;
+	private final double[] downWeights;
+	private final int[] downEdges;
+
+	// remaining graph while contracting, edge ids per vertex
+	private int[][] outEdges;
+	private int[] outDegrees;
+	private int[][] inEdges;
+	private int[] inDegrees;
+	private int[] contractedNeighbours;
+
+	// workspace of the witness searches
+	private IndexedHeap witnessHeap;
+	private double[] witnessDistances;
+	private int[] witnessStamps;
+	private int witnessSearch;
+
+	ContractionHierarchy(CompressedGraph graph) {
+		vertexCount = graph.getVertexCount();
+		int capacity = Math.max(16, graph.getEdgeCount() * 2);
+		edgeSources = new int[capacity];
+		edgeTargets = new int[capacity];
+		edgeWeights = new double[capacity];
+		firstHalves = new int[capacity];
+		secondHalves = new int[capacity];
+
+		outEdges = new int[vertexCount][];
+		outDegrees = new int[vertexCount];
+		inEdges = new int[vertexCount][];
+		inDegrees = new int[vertexCount];
+		for (int v = 0; v < vertexCount; v++) {
+			for (int edge = graph.getEdgesBegin(v), end = graph.getEdgesEnd(v); edge < end; edge++) {
+				int target = graph.getTarget(edge);
+				if (target != v) {
+					addOrImproveEdge(v, target, graph.getWeight(edge), -1, -1);
+				}
+			}
+		}
+
+		ranks = new int[vertexCount];
+		contract();
+
+		upOffsets = new int[vertexCount + 1];
+		downOffsets = new int[vertexCount + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			if (ranks[edgeSources[e]] < ranks[edgeTargets[e]]) {
+				upOffsets[edgeSources[e] + 1]++;
+			} else {
+				downOffsets[edgeTargets[e] + 1]++;
+			}
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+		upTargets = new int[upOffsets[vertexCount]];
+		upWeights = new double[upTargets.length];
+		upEdges = new int[upTargets.length];
+		downTargets = new int[downOffsets[vertexCount]];
+		downWeights = new double[downTargets.length];
+		downEdges = new int[downTargets.length];
+		int[] nextUp = Arrays.copyOf(upOffsets, vertexCount);
+		int[] nextDown = Arrays.copyOf(downOffsets, vertexCount);
+		for (int e = 0; e < edgeCount; e++) {
+			int source = edgeSources[e];
+			int target = edgeTargets[e];
+			if (ranks[source] < ranks[target]) {
+				int position = nextUp[source]++;
+				upTargets[position] = target;
+				upWeights[position] = edgeWeights[e];
+				upEdges[position] = e;
+			} else {
+				int position = nextDown[target]++;
+				downTargets[position] = source;
+				downWeights[position] = edgeWeights[e];
+				downEdges[position] = e;
+			}
+		}
+
+		// only needed while contracting
+		outEdges = null;
+		inEdges = null;
+		outDegrees = null;
+		inDegrees = null;
+		contractedNeighbours = null;
+		witnessHeap = null;
+		witnessDistances = null;
+		witnessStamps = null;
+		edgeSources = Arrays.copyOf(edgeSources, edgeCount);
+		edgeTargets = Arrays.copyOf(edgeTargets, edgeCount);
+		edgeWeights = Arrays.copyOf(edgeWeights, edgeCount);
+		firstHalves = Arrays.copyOf(firstHalves, edgeCount);
+		secondHalves = Arrays.copyOf(secondHalves, edgeCount);
+	}
+
+	int getRank(int index) {
+		return ranks[index];
+	}
+
+	int getShortcutCount() {
+		return shortcutCount;
+	}
+
+	int getUpBegin(int index) {
+		return upOffsets[index];
+	}
+
+	int getUpEnd(int index) {
+		return upOffsets[index + 1];
+	}
+
+	int getUpTarget(int position) {
+		return upTargets[position];
+	}
+
+	double getUpWeight(int position) {
+		return upWeights[position];
+	}
+
+	int getDownBegin(int index) {
+		return downOffsets[index];
+	}
+
+	int getDownEnd(int index) {
+		return downOffsets[index + 1];
+	}
+
+	/**
+	 * @return source of the downward edge at the given position, which is stored at its target.
+	 */
+	int getDownTarget(int position) {
+		return downTargets[position];
+	}
+
+	double getDownWeight(int position) {
+		return downWeights[position];
+	}
+
+	/**
+	 * @return id of the upward edge from source to target, -1 if there is none.
+	 */
+	int findUpEdge(int source, int target) {
+		for (int position = upOffsets[source]; position < upOffsets[source + 1]; position++) {
+			if (upTargets[position] == target) {
+				return upEdges[position];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return id of the downward edge from source to target, -1 if there is none.
+	 */
+	int findDownEdge(int source, int target) {
+		for (int position = downOffsets[target]; position < downOffsets[target + 1]; position++) {
+			if (downTargets[position] == source) {
+				return downEdges[position];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends the vertexes after the source of the edge up to its target, replacing shortcuts by the edges
+	 * of the original graph.
+	 *
+	 * @param length distance of the source of the edge.
+	 * @return distance of its target, the weights of the original edges added one at a time in path order.
+	 */
+	double unpack(int edge, IntList path, IntList stack, double length) {
+		stack.clear();
+		stack.add(edge);
+		while (!stack.isEmpty()) {
+			int e = stack.removeLast();
+			if (firstHalves[e] < 0) {
+				path.add(edgeTargets[e]);
+				length += edgeWeights[e];
+			} else {
+				stack.add(secondHalves[e]);
+				stack.add(firstHalves[e]);
+			}
+		}
+		return length;
+	}
+
+	private void contract() {
+		contractedNeighbours = new int[vertexCount];
+		witnessHeap = new IndexedHeap(vertexCount);
+		witnessDistances = new double[vertexCount];
+		witnessStamps = new int[vertexCount];
+
+		IndexedHeap queue = new IndexedHeap(vertexCount);
+		for (int v = 0; v < vertexCount; v++) {
+			queue.insertOrDecrease(v, priority(v));
+		}
+
+		int rank = 0;
+		IntList neighbours = new IntList();
+		while (!queue.isEmpty()) {
+			int v = queue.poll();
+			// the priority may have gone up since it was queued, then another vertex is more urgent
+			double priority = priority(v);
+			if (!queue.isEmpty() && priority > queue.peekKey()) {
+				queue.insertOrDecrease(v, priority);
+				continue;
+			}
+
+			neighbours.clear();
+			for (int k = 0; k < outDegrees[v]; k++) {
+				neighbours.add(edgeTargets[outEdges[v][k]]);
+			}
+			for (int k = 0; k < inDegrees[v]; k++) {
+				neighbours.add(edgeSources[inEdges[v][k]]);
+			}
+
+			addShortcuts(v, false);
+			removeFromRemainingGraph(v);
+			ranks[v] = rank++;
+
+			for (int i = 0; i < neighbours.size(); i++) {
+				int neighbour = neighbours.get(i);
+				contractedNeighbours[neighbour]++;
+				queue.insertOrDecrease(neighbour, priority(neighbour));
+			}
+		}
+	}
+
+	private double priority(int v) {
+		int shortcuts = addShortcuts(v, true);
+		return shortcuts - outDegrees[v] - inDegrees[v] + contractedNeighbours[v];
+	}
+
+	/**
+	 * Finds the shortcuts contracting the vertex needs.
+	 *
+	 * @param simulate if true the shortcuts are only counted.
+	 * @return number of shortcuts needed.
+	 */
+	private int addShortcuts(int v, boolean simulate) {
+		int shortcuts = 0;
+		for (int i = 0; i < inDegrees[v]; i++) {
+			int inEdge = inEdges[v][i];
+			int source = edgeSources[inEdge];
+			double limit = -1;
+			for (int k = 0; k < outDegrees[v]; k++) {
+				int outEdge = outEdges[v][k];
+				if (edgeTargets[outEdge] != source) {
+					limit = Math.max(limit, edgeWeights[inEdge] + edgeWeights[outEdge]);
+				}
+			}
+			if (limit < 0) {
+				continue;
+			}
+
+			findWitnesses(source, v, limit, simulate ? SIMULATED_WITNESS_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+			for (int k = 0; k < outDegrees[v]; k++) {
+				int outEdge = outEdges[v][k];
+				int target = edgeTargets[outEdge];
+				double length = edgeWeights[inEdge] + edgeWeights[outEdge];
+				if (target == source || witnessDistance(target) <= length) {
+					continue;
+				}
+				shortcuts++;
+				if (!simulate && addOrImproveEdge(source, target, length, inEdge, outEdge)) {
+					shortcutCount++;
+				}
+			}
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Dijkstra from the source over the remaining graph without the vertex being contracted, up to the
+	 * given distance.
+	 */
+	private void findWitnesses(int source, int avoided, double limit, int settleLimit) {
+		witnessSearch++;
+		witnessHeap.clear();
+		witnessStamps[source] = witnessSearch;
+		witnessDistances[source] = 0;
+		witnessHeap.insertOrDecrease(source, 0);
+		int settled = 0;
+		while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= limit && settled < settleLimit) {
+			int index = witnessHeap.poll();
+			settled++;
+			double distance = witnessDistances[index];
+			for (int k = 0; k < outDegrees[index]; k++) {
+				int edge = outEdges[index][k];
+				int target = edgeTargets[edge];
+				if (target == avoided) {
+					continue;
+				}
+				double alt = distance + edgeWeights[edge];
+				if (alt < witnessDistance(target)) {
+					witnessStamps[target] = witnessSearch;
+					witnessDistances[target] = alt;
+					witnessHeap.insertOrDecrease(target, alt);
+				}
+			}
+		}
+		witnessHeap.clear();
+	}
+
+	private double witnessDistance(int index) {
+		return witnessStamps[index] == witnessSearch ? witnessDistances[index] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Adds an edge to the remaining graph, or makes the existing edge between the same vertexes shorter.
+	 *
+	 * @return true if a new edge was added.
+	 */
+	private boolean addOrImproveEdge(int source, int target, double weight, int firstHalf, int secondHalf) {
+		for (int k = 0; k < outDegrees[source]; k++) {
+			int edge = outEdges[source][k];
+			if (edgeTargets[edge] == target) {
+				// no shortcut refers to it yet, both ends are still in the remaining graph
+				if (weight < edgeWeights[edge]) {
+					edgeWeights[edge] = weight;
+					firstHalves[edge] = firstHalf;
+					secondHalves[edge] = secondHalf;
+				}
+				return false;
+			}
+		}
+
+		if (edgeCount == edgeSources.length) {
+			int capacity = edgeCount * 2;
+			edgeSources = Arrays.copyOf(edgeSources, capacity);
+			edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+			edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+			firstHalves = Arrays.copyOf(firstHalves, capacity);
+			secondHalves = Arrays.copyOf(secondHalves, capacity);
+		}
+		int edge = edgeCount++;
+		edgeSources[edge] = source;
+		edgeTargets[edge] = target;
+		edgeWeights[edge] = weight;
+		firstHalves[edge] = firstHalf;
+		secondHalves[edge] = secondHalf;
+
+		outEdges[source] = append(outEdges[source], outDegrees[source]++, edge);
+		inEdges[target] = append(inEdges[target], inDegrees[target]++, edge);
+		return true;
+	}
+
+	private void removeFromRemainingGraph(int v) {
+		for (int k = 0; k < outDegrees[v]; k++) {
+			int target = edgeTargets[outEdges[v][k]];
+			inDegrees[target] = remove(inEdges[target], inDegrees[target], outEdges[v][k]);
+		}
+		for (int k = 0; k < inDegrees[v]; k++) {
+			int source = edgeSources[inEdges[v][k]];
+			outDegrees[source] = remove(outEdges[source], outDegrees[source], inEdges[v][k]);
+		}
+		outEdges[v] = null;
+		inEdges[v] = null;
+		outDegrees[v] = 0;
+		inDegrees[v] = 0;
+	}
+
+	private static int[] append(int[] values, int count, int value) {
+		if (values == null) {
+			values = new int[4];
+		} else if (count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+		}
+		values[count] = value;
+		return values;
+	}
+
+	/**
+	 * Removes the value from the first count values, the last one takes its place.
+	 *
+	 * @return the new count.
+	 */
+	private static int remove(int[] values, int count, int value) {
+		for (int k = 0; k < count; k++) {
+			if (values[k] == value) {
+				values[k] = values[count - 1];
+				return count - 1;
+			}
+		}
+		return count;
+	}
+}
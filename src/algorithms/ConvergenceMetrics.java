@@ -0,0 +1,74 @@
+package algorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the convergences of one or more {@link DistanceVectorRoutingImplementation}s cost: histograms of the
+ * rounds, of the distance vector updates sent and of the wall time in nanoseconds per convergence.
+ *
+ * Metrics are off until {@link DistanceVectorRoutingImplementation#setMetrics(ConvergenceMetrics)} is
+ * called. Asynchronous networks do not run in rounds and record none.
+ *
+ * @author mehmet
+ *
+ */
+public class ConvergenceMetrics {
+
+	private final AtomicLong convergenceCount = new AtomicLong();
+	private final AtomicLong messageCount = new AtomicLong();
+
+	private final Histogram rounds = new Histogram();
+	private final Histogram messages = new Histogram();
+	private final Histogram wallTimeNanos = new Histogram();
+
+	void record(ReconvergenceReport report) {
+		convergenceCount.incrementAndGet();
+		messageCount.addAndGet(report.getMessages());
+		if (report.getRounds() >= 0) {
+			rounds.record(report.getRounds());
+		}
+		messages.record(report.getMessages());
+		wallTimeNanos.record(report.getWallTimeNanos());
+	}
+
+	public long getConvergenceCount() {
+		return convergenceCount.get();
+	}
+
+	/**
+	 * @return distance vector updates sent during all the convergences.
+	 */
+	public long getMessageCount() {
+		return messageCount.get();
+	}
+
+	public Histogram getRounds() {
+		return rounds;
+	}
+
+	public Histogram getMessages() {
+		return messages;
+	}
+
+	public Histogram getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+
+	public void reset() {
+		convergenceCount.set(0);
+		messageCount.set(0);
+		rounds.reset();
+		messages.reset();
+		wallTimeNanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%d convergences, %d messages", getConvergenceCount(), getMessageCount()));
+		builder.append("\nrounds: ").append(rounds);
+		builder.append("\nmessages: ").append(messages);
+		builder.append("\nwall time ns: ").append(wallTimeNanos);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,408 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Delta-stepping (Meyer and Sanders): a parallel single source shortest path algorithm for non-negative
+ * edge weights.
+ * 
+ * Tentative distances are kept in buckets of width delta. The vertexes of the smallest non-empty bucket
+ * relax their light edges (weight at most delta) in parallel, which may put vertexes back into the same
+ * bucket, until the bucket stays empty; then all vertexes removed from it relax their heavy edges in
+ * parallel and are settled. With delta = 0 this is Dijkstra's algorithm, with an infinite delta it is
+ * Bellman-Ford; in between a bucket offers enough independent relaxations to keep the cores busy while
+ * few edges are relaxed more than once.
+ * 
+ * Distances are lowered with a compare-and-set on their bits, so concurrent relaxations of the same vertex
+ * keep the smaller one. The previous vertexes are derived once the distances are final, from the edges
+ * which exactly account for the distance of their end.
+ * 
+ * Queries with targets stop after the bucket in which the last target is settled.
+ * 
+ * @author mehmet
+ *
+ */
+public class DeltaSteppingImplementation extends DijkstraImplementation {
+
+	// frontiers smaller than this are relaxed by the calling thread
+	private static final int MIN_VERTEXES_PER_TASK = 256;
+	// upper limit of the number of buckets kept, vertexes further ahead wait in the bucket of the same slot
+	private static final int MAX_BUCKET_SLOTS = 1 << 16;
+
+	private final double delta;
+	private final double maxWeight;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Uses the average edge weight as the bucket width.
+	 */
+	public DeltaSteppingImplementation(Graph graph) {
+		this(graph, 0, new ForkJoinPool());
+	}
+
+	/**
+	 * @param delta bucket width, 0 for the average edge weight. Small values mean less wasted work,
+	 *            large values more parallelism.
+	 */
+	public DeltaSteppingImplementation(Graph graph, double delta, ForkJoinPool pool) {
+		super(graph);
+		this.maxWeight = findMaxWeight();
+		this.delta = chooseDelta(delta);
+		this.pool = pool;
+	}
+
+	public DeltaSteppingImplementation(CompressedGraph compressedGraph) {
+		this(compressedGraph, 0, new ForkJoinPool());
+	}
+
+	public DeltaSteppingImplementation(CompressedGraph compressedGraph, double delta, ForkJoinPool pool) {
+		super(compressedGraph);
+		this.maxWeight = findMaxWeight();
+		this.delta = chooseDelta(delta);
+		this.pool = pool;
+	}
+
+	private double findMaxWeight() {
+		double max = 0;
+		for (int edge = 0; edge < compressedGraph.getEdgeCount(); edge++) {
+			max = Math.max(max, compressedGraph.getWeight(edge));
+		}
+		return max;
+	}
+
+	private double chooseDelta(double delta) {
+		if (delta <= 0 && compressedGraph.getEdgeCount() > 0) {
+			double sum = 0;
+			for (int edge = 0; edge < compressedGraph.getEdgeCount(); edge++) {
+				sum += compressedGraph.getWeight(edge);
+			}
+			delta = sum / compressedGraph.getEdgeCount();
+		}
+		return delta > 0 ? delta : 1;
+	}
+
+	public double getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Stops the worker threads of the pool. The algorithm cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		// the buffers stay with the context from query to query
+		Buffers buffers = context.getWorkspace() instanceof Buffers ? (Buffers) context.getWorkspace() : null;
+		if (buffers == null || !buffers.belongsTo(this)) {
+			buffers = new Buffers();
+			context.setWorkspace(buffers);
+		}
+		buffers.start();
+		try {
+			search(context, buffers);
+		} finally {
+			buffers.finish();
+		}
+	}
+
+	private void search(QueryContext context, Buffers buffers) {
+		int indexOfSource = context.getIndexOfSource();
+		AtomicLongArray distances = buffers.distances;
+		IntList[] buckets = buffers.buckets;
+		distances.set(indexOfSource, Double.doubleToRawLongBits(0));
+		buffers.touch(indexOfSource);
+		buckets[0].add(indexOfSource);
+		long pendingCount = 1;
+
+		IntList removedInBucket = buffers.removedInBucket;
+		IntList frontier = buffers.frontier;
+		// vertexes sharing the slot of the current bucket but belonging to a later one
+		IntList later = buffers.later;
+
+		long bucket = 0;
+		int emptySlots = 0;
+		while (pendingCount > 0) {
+			IntList entries = buckets[(int) (bucket % buckets.length)];
+			if (entries.isEmpty()) {
+				if (++emptySlots < buckets.length) {
+					bucket++;
+				} else {
+					// every slot is empty or holds later buckets only
+					bucket = firstBucket(distances, buckets);
+					emptySlots = 0;
+				}
+				continue;
+			}
+			emptySlots = 0;
+
+			removedInBucket.clear();
+			later.clear();
+			while (!entries.isEmpty()) {
+				// vertexes are not removed from a bucket when their distance drops, they are skipped here instead
+				int frontierStamp = buffers.nextFrontierStamp();
+				frontier.clear();
+				pendingCount -= entries.size();
+				for (int i = 0; i < entries.size(); i++) {
+					int index = entries.get(i);
+					long bucketOfIndex = bucketOf(distances, index);
+					if (bucketOfIndex > bucket) {
+						later.add(index);
+					} else if (bucketOfIndex == bucket && buffers.frontierStamps[index] != frontierStamp) {
+						buffers.frontierStamps[index] = frontierStamp;
+						frontier.add(index);
+						if (buffers.removedStamps[index] != buffers.query) {
+							buffers.removedStamps[index] = buffers.query;
+							removedInBucket.add(index);
+						}
+					}
+				}
+				entries.clear();
+
+				IntList improved = relax(context, distances, frontier, true);
+				pendingCount += addToBuckets(buffers, improved);
+			}
+			for (int i = 0; i < later.size(); i++) {
+				entries.add(later.get(i));
+			}
+			pendingCount += later.size();
+
+			IntList improved = relax(context, distances, removedInBucket, false);
+			pendingCount += addToBuckets(buffers, improved);
+
+			for (int i = 0; i < removedInBucket.size(); i++) {
+				context.settle(removedInBucket.get(i));
+			}
+			if (context.isSearchComplete()) {
+				break;
+			}
+			bucket++;
+		}
+		buffers.bucketsEmpty = pendingCount == 0;
+
+		buildShortestPathTree(context, distances);
+	}
+
+	private long bucketOf(AtomicLongArray distances, int index) {
+		return (long) (Double.longBitsToDouble(distances.get(index)) / delta);
+	}
+
+	private long firstBucket(AtomicLongArray distances, IntList[] buckets) {
+		long first = Long.MAX_VALUE;
+		for (IntList entries : buckets) {
+			for (int i = 0; i < entries.size(); i++) {
+				first = Math.min(first, bucketOf(distances, entries.get(i)));
+			}
+		}
+		return first;
+	}
+
+	private int addToBuckets(Buffers buffers, IntList improved) {
+		for (int i = 0; i < improved.size(); i++) {
+			int index = improved.get(i);
+			buffers.touch(index);
+			buffers.buckets[(int) (bucketOf(buffers.distances, index) % buffers.buckets.length)].add(index);
+		}
+		return improved.size();
+	}
+
+	/**
+	 * Relaxes the light or the heavy edges of the given vertexes, in parallel if there are enough of them.
+	 * 
+	 * @return vertexes whose distance decreased, possibly more than once each.
+	 */
+	private IntList relax(QueryContext context, AtomicLongArray distances, IntList vertexes, boolean light) {
+		RelaxTask task = new RelaxTask(distances, vertexes, 0, vertexes.size(), light);
+		IntList improved = vertexes.size() < MIN_VERTEXES_PER_TASK ? task.compute() : pool.invoke(task);
+		context.addRelaxedEdges(task.relaxedEdgeCount);
+		return improved;
+	}
+
+	/**
+	 * Sets the previous vertexes by a breadth first search from the source over the edges whose end has
+	 * exactly the distance of their start plus their weight. Every final distance was written by such an
+	 * edge from a vertex with its own final distance, so the search reaches every settled vertex. Only the
+	 * source is reached in the context before, so a vertex is new to the search while it is unreached there.
+	 */
+	private void buildShortestPathTree(QueryContext context, AtomicLongArray distances) {
+		int[] queue = context.getQueue();
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = context.getIndexOfSource();
+		while (head < tail) {
+			int index = queue[head++];
+			double distance = Double.longBitsToDouble(distances.get(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				if (context.getDistance(neighbourIndex) == Double.MAX_VALUE && context.isSettled(neighbourIndex)
+						&& distance + compressedGraph.getWeight(edge) == Double.longBitsToDouble(distances.get(neighbourIndex))) {
+					queue[tail++] = neighbourIndex;
+					context.update(neighbourIndex, distance + compressedGraph.getWeight(edge), index);
+				}
+			}
+		}
+	}
+
+	// buffers of the queries of one context, every vertex at infinity and every bucket empty between queries
+	private class Buffers {
+
+		final AtomicLongArray distances;
+		// an edge moves a vertex at most maxWeight / delta buckets ahead, so the buckets can be reused cyclically
+		final IntList[] buckets;
+		boolean bucketsEmpty = true;
+		// a vertex is in the current frontier if its stamp matches
+		final int[] frontierStamps;
+		int frontierStamp;
+		// a vertex was removed from its bucket during the query if its stamp is the query's
+		final int[] removedStamps;
+		// vertexes whose distance the query lowered, reset to infinity when it finishes
+		final IntList touched = new IntList();
+		final int[] touchedStamps;
+		int query;
+		final IntList removedInBucket = new IntList();
+		final IntList frontier = new IntList();
+		final IntList later = new IntList();
+
+		Buffers() {
+			int vertexCount = compressedGraph.getVertexCount();
+			distances = new AtomicLongArray(vertexCount);
+			long infinity = Double.doubleToRawLongBits(Double.MAX_VALUE);
+			for (int index = 0; index < vertexCount; index++) {
+				distances.set(index, infinity);
+			}
+			buckets = new IntList[(int) Math.min(MAX_BUCKET_SLOTS, (long) (maxWeight / delta) + 2)];
+			for (int slot = 0; slot < buckets.length; slot++) {
+				buckets[slot] = new IntList();
+			}
+			frontierStamps = new int[vertexCount];
+			removedStamps = new int[vertexCount];
+			touchedStamps = new int[vertexCount];
+		}
+
+		boolean belongsTo(DeltaSteppingImplementation algorithm) {
+			return DeltaSteppingImplementation.this == algorithm;
+		}
+
+		void start() {
+			if (query == Integer.MAX_VALUE) {
+				Arrays.fill(removedStamps, 0);
+				Arrays.fill(touchedStamps, 0);
+				query = 0;
+			}
+			query++;
+			bucketsEmpty = false;
+		}
+
+		int nextFrontierStamp() {
+			if (frontierStamp == Integer.MAX_VALUE) {
+				Arrays.fill(frontierStamps, 0);
+				frontierStamp = 0;
+			}
+			return ++frontierStamp;
+		}
+
+		void touch(int index) {
+			if (touchedStamps[index] != query) {
+				touchedStamps[index] = query;
+				touched.add(index);
+			}
+		}
+
+		/**
+		 * Puts back what the query changed, in time proportional to the vertexes it reached.
+		 */
+		void finish() {
+			long infinity = Double.doubleToRawLongBits(Double.MAX_VALUE);
+			for (int i = 0; i < touched.size(); i++) {
+				distances.set(touched.get(i), infinity);
+			}
+			touched.clear();
+			// a query stopped by its targets leaves later buckets behind
+			if (!bucketsEmpty) {
+				for (IntList entries : buckets) {
+					entries.clear();
+				}
+				bucketsEmpty = true;
+			}
+		}
+	}
+
+	private class RelaxTask extends RecursiveTask<IntList> {
+
+		private static final long serialVersionUID = 2417420573938011856L;
+
+		private final AtomicLongArray distances;
+		private final IntList vertexes;
+		private final int from;
+		private final int to;
+		private final boolean light;
+		// light or heavy edges looked at by this task and the tasks it forked
+		long relaxedEdgeCount;
+
+		RelaxTask(AtomicLongArray distances, IntList vertexes, int from, int to, boolean light) {
+			this.distances = distances;
+			this.vertexes = vertexes;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		@Override
+		protected IntList compute() {
+			if (to - from > MIN_VERTEXES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				RelaxTask second = new RelaxTask(distances, vertexes, middle, to, light);
+				second.fork();
+				RelaxTask first = new RelaxTask(distances, vertexes, from, middle, light);
+				IntList improved = first.compute();
+				IntList secondImproved = second.join();
+				relaxedEdgeCount = first.relaxedEdgeCount + second.relaxedEdgeCount;
+				for (int i = 0; i < secondImproved.size(); i++) {
+					improved.add(secondImproved.get(i));
+				}
+				return improved;
+			}
+
+			IntList improved = new IntList();
+			long relaxed = 0;
+			for (int i = from; i < to; i++) {
+				int index = vertexes.get(i);
+				double distance = Double.longBitsToDouble(distances.get(index));
+				for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+					double weight = compressedGraph.getWeight(edge);
+					if ((weight <= delta) != light) {
+						continue;
+					}
+					relaxed++;
+					int neighbourIndex = compressedGraph.getTarget(edge);
+					if (lowerDistance(neighbourIndex, distance + weight)) {
+						improved.add(neighbourIndex);
+					}
+				}
+			}
+			relaxedEdgeCount = relaxed;
+			return improved;
+		}
+
+		private boolean lowerDistance(int index, double distance) {
+			long bits = Double.doubleToRawLongBits(distance);
+			while (true) {
+				long current = distances.get(index);
+				if (distance >= Double.longBitsToDouble(current)) {
+					return false;
+				}
+				if (distances.compareAndSet(index, current, bits)) {
+					return true;
+				}
+			}
+		}
+	}
+}
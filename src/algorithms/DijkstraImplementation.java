@@ -1,8 +1,7 @@
 package algorithms;
 
-import model.Edge;
+import model.CompressedGraph;
 import model.Graph;
-import model.Vertex;
 
 /**
  * 
@@ -26,39 +25,53 @@ public class DijkstraImplementation extends ShortestPathAlgorithm {
 
 	public DijkstraImplementation(Graph graph) {
 		super(graph);
+		checkWeights();
+	}
+
+	public DijkstraImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+		checkWeights();
+	}
 
-		for (Edge edge : graph.getEdges()) {
-			if (edge.getWeight() < 0)
-				throw new IllegalArgumentException("Disjkstra Algorithm does not support negative edge weights.");
+	/**
+	 * @return a {@link BucketDijkstraImplementation} if every edge weight in {@link Graph#getEdges()} is a
+	 *         non-negative int, a {@link HeapDijkstraImplementation} otherwise.
+	 */
+	public static DijkstraImplementation create(Graph graph) {
+		if (BucketDijkstraImplementation.supports(graph)) {
+			return new BucketDijkstraImplementation(graph);
 		}
+		return new HeapDijkstraImplementation(graph);
+	}
+
+	public static DijkstraImplementation create(CompressedGraph compressedGraph) {
+		if (BucketDijkstraImplementation.supports(compressedGraph)) {
+			return new BucketDijkstraImplementation(compressedGraph);
+		}
+		return new HeapDijkstraImplementation(compressedGraph);
+	}
+
+	private void checkWeights() {
+		if (compressedGraph.getMinWeight() < 0)
+			throw new IllegalArgumentException("Disjkstra Algorithm does not support negative edge weights.");
 	}
 
 	@Override
-	protected void runTheAlgorithm() {
+	protected void runTheAlgorithm(QueryContext context) {
+		int vertexCount = compressedGraph.getVertexCount();
 		int removedCount = 0;
 		while (removedCount < vertexCount) {
-			int index = findVertexWithMinDistance(distances, unvisited);
-			Vertex vertex = unvisited[index];
-			unvisited[index] = null;
+			int index = findVertexWithMinDistance(context);
+			context.settle(index);
 			removedCount++;
 
 			//Difference from the base class
-			//terminate the algorithm here since the shortest path to destination is found.
-			if (index == indexOfDestination) {
+			//terminate the algorithm here since the shortest paths to the destination (or every target) are found.
+			if (context.isSearchComplete()) {
 				break;
 			}
 
-			if (vertex.getNeighbours() != null && vertex.getNeighbours().length > 0) {
-				for (Vertex neighbour : vertex.getNeighbours()) {
-					int neighbourIndex = findVertexIndex(neighbour);
-					double alt = distances[index] + edgeCostsMap.get(String.format("%d-%d", vertex.getId(), neighbour.getId()));
-					if (alt < distances[neighbourIndex]) {
-						distances[neighbourIndex] = alt;
-						//Where did we come here that short? Hold the vertexes providing the shortest path in previous array.
-						previous[neighbourIndex] = vertex;
-					}
-				}
-			}
+			relaxOutgoingEdges(context, index);
 		}
 	}
 	
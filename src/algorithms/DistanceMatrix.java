@@ -0,0 +1,70 @@
+package algorithms;
+
+/**
+ * Distances from a list of sources to a list of targets, stored row by row in a single flat double array.
+ * Unreachable targets have the distance Double.MAX_VALUE.
+ * 
+ * @author mehmet
+ *
+ */
+public class DistanceMatrix {
+
+	private final int rowCount;
+	private final int columnCount;
+	private final double[] values;
+
+	public DistanceMatrix(int rowCount, int columnCount) {
+		this(rowCount, columnCount, allocate(rowCount, columnCount));
+	}
+
+	/**
+	 * For subclasses which keep the distances elsewhere and override the accessors.
+	 */
+	protected DistanceMatrix(int rowCount, int columnCount, double[] values) {
+		this.rowCount = rowCount;
+		this.columnCount = columnCount;
+		this.values = values;
+	}
+
+	private static double[] allocate(int rowCount, int columnCount) {
+		if ((long) rowCount * columnCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException(String.format("A %d x %d matrix does not fit into an array, map it from a file instead.", rowCount,
+					columnCount));
+		}
+		return new double[rowCount * columnCount];
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * @return distance from the source of the given row to the target of the given column.
+	 */
+	public double get(int row, int column) {
+		return values[row * columnCount + column];
+	}
+
+	void set(int row, int column, double distance) {
+		values[row * columnCount + column] = distance;
+	}
+
+	/**
+	 * Copies length distances of the row, starting at the given column, into the array. Reads whole rows
+	 * much faster than {@link #get(int, int)} per column, whatever the storage of the matrix.
+	 */
+	public void getRow(int row, int column, double[] destination, int offset, int length) {
+		System.arraycopy(values, row * columnCount + column, destination, offset, length);
+	}
+
+	/**
+	 * Overwrites length distances of the row, starting at the given column, with those of the array.
+	 */
+	void setRow(int row, int column, double[] source, int offset, int length) {
+		System.arraycopy(source, offset, values, row * columnCount + column, length);
+	}
+}
@@ -1,10 +1,12 @@
 package algorithms;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-import model.Node;
+import model.DistanceVectorUpdate;
+import model.Router;
 
 /**
  * 
@@ -22,22 +24,84 @@ import model.Node;
  * 
  * Watch: http://www.youtube.com/watch?v=ylzAefKENXY
  * 
+ * The nodes can be {@link model.Node}s or, for large networks, {@link model.CompactNode}s which keep their
+ * routing tables in primitive arrays.
+ * 
+ * After converging, links can change their cost or fail with {@link #changeLinkCost(Integer, Integer, double)}
+ * and {@link #failLink(Integer, Integer)}, and {@link #reconverge()} reports what it took to converge again.
+ * A failure makes nodes count to infinity through each other unless a {@link LoopPrevention} is set, and
+ * loops of more than two nodes are only ended by the infinity bound. By default it is the node count times
+ * the largest link cost, which no simple path reaches, and {@link #setInfinity(double)} can set another.
+ * A convergence which takes more than {@link #setMaxRounds(int) the maximum rounds} throws instead of
+ * running on.
+ * 
  * @author mehmet
  *
  */
 public class DistanceVectorRoutingImplementation {
 
-	Map<Integer, Node> nodesMap;
+	/**
+	 * What a node advertises to the neighbour it forwards to for a destination.
+	 */
+	public enum LoopPrevention {
+		/** the cost, as to any other neighbour */
+		NONE,
+		/**
+		 * nothing, the neighbour is told once that the destination is unreachable when the node starts
+		 * forwarding to it, the way an omitted route times out in a real router
+		 */
+		SPLIT_HORIZON,
+		/** that the destination is unreachable, every time the entry changes */
+		POISON_REVERSE
+	}
+
+	// rounds after which a convergence gives up by default
+	public static final int DEFAULT_MAX_ROUNDS = 1 << 20;
+
+	Map<Integer, Router> nodesMap;
 
-	public DistanceVectorRoutingImplementation(Node[] nodes) {
-		nodesMap = new HashMap<Integer, Node>(nodes.length);
-		for (Node node : nodes) {
+	private LoopPrevention loopPrevention = LoopPrevention.NONE;
+	private double infinity;
+	// whether the infinity bound follows the link costs or was set explicitly
+	private boolean defaultInfinity = true;
+	private int maxRounds = DEFAULT_MAX_ROUNDS;
+	private int roundCount;
+	private long sentMessageCount;
+	// null while metrics are off
+	private volatile ConvergenceMetrics metrics;
+
+	public DistanceVectorRoutingImplementation(Router[] nodes) {
+		nodesMap = new HashMap<Integer, Router>(nodes.length);
+		for (Router node : nodes) {
 			nodesMap.put(node.getId(), node);
 		}
 
-		for (Node value : nodesMap.values()) {
+		for (Router value : nodesMap.values()) {
 			value.setNonNeighbours(nodesMap.keySet());
 		}
+
+		double largestLinkCost = 0;
+		for (Router node : nodesMap.values()) {
+			for (Integer neighbour : node.getNeighbours()) {
+				largestLinkCost = Math.max(largestLinkCost, node.getLinkCost(neighbour));
+			}
+		}
+		raiseDefaultInfinity(largestLinkCost);
+	}
+
+	/**
+	 * Makes the default bound cover paths over links of the given cost. A simple path has fewer links than
+	 * there are nodes, so the node count times the largest link cost is above every real route.
+	 */
+	private void raiseDefaultInfinity(double linkCost) {
+		// with no positive link cost every route costs 0, any positive bound will do
+		double bound = Math.max(Double.MIN_VALUE, nodesMap.size() * linkCost);
+		if (defaultInfinity && bound > infinity) {
+			infinity = bound;
+			for (Router node : nodesMap.values()) {
+				node.setInfinity(infinity);
+			}
+		}
 	}
 
 	/**
@@ -52,51 +116,261 @@ public class DistanceVectorRoutingImplementation {
 		}
 	}
 
+	/**
+	 * Sends only the changed entries of a distance vector to the neighbours, as the loop prevention allows
+	 */
+	public void sendDistanceVectorUpdate(DistanceVectorUpdate update, Set<Integer> neighbors) {
+		for (Integer neighbour : neighbors) {
+			DistanceVectorUpdate message = updateForNeighbour(update, neighbour);
+			if (message.size() > 0) {
+				nodesMap.get(neighbour).receiveDistanceVectorUpdate(message);
+				sentMessageCount++;
+			}
+		}
+	}
+
+	public void setLoopPrevention(LoopPrevention loopPrevention) {
+		this.loopPrevention = loopPrevention;
+	}
+
+	public LoopPrevention getLoopPrevention() {
+		return loopPrevention;
+	}
+
+	/**
+	 * Sets the cost from which on every node treats a destination as unreachable, in place of the default
+	 * which grows with the largest link cost. Double.MAX_VALUE leaves counting to infinity unbounded, then
+	 * only the maximum rounds end it.
+	 */
+	public void setInfinity(double infinity) {
+		this.infinity = infinity;
+		defaultInfinity = false;
+		for (Router node : nodesMap.values()) {
+			node.setInfinity(infinity);
+		}
+	}
+
+	public double getInfinity() {
+		return infinity;
+	}
+
+	/**
+	 * Sets the number of rounds after which a convergence throws, {@link #DEFAULT_MAX_ROUNDS} by default.
+	 */
+	public void setMaxRounds(int maxRounds) {
+		if (maxRounds < 1) {
+			throw new IllegalArgumentException("A convergence needs at least one round.");
+		}
+		this.maxRounds = maxRounds;
+	}
+
+	public int getMaxRounds() {
+		return maxRounds;
+	}
+
+	/**
+	 * Changes the cost of the link between two nodes in both directions. The network converges again on the
+	 * next query or {@link #reconverge()}.
+	 */
+	public void changeLinkCost(Integer nodeId, Integer neighbourId, double cost) {
+		routerOrFail(nodeId).setLinkCost(neighbourId, cost);
+		routerOrFail(neighbourId).setLinkCost(nodeId, cost);
+		raiseDefaultInfinity(cost);
+	}
+
+	/**
+	 * Takes down the link between two nodes in both directions. The network converges again on the next
+	 * query or {@link #reconverge()}.
+	 */
+	public void failLink(Integer nodeId, Integer neighbourId) {
+		routerOrFail(nodeId).removeNeighbour(neighbourId);
+		routerOrFail(neighbourId).removeNeighbour(nodeId);
+	}
+
+	/**
+	 * Converges after link changes.
+	 * 
+	 * @return the rounds, messages and wall time it took.
+	 */
+	public ReconvergenceReport reconverge() {
+		long messagesBefore = getSentMessageCount();
+		long start = System.nanoTime();
+		converge();
+		long wallTime = System.nanoTime() - start;
+		ReconvergenceReport report = new ReconvergenceReport(getRoundCount(), getSentMessageCount() - messagesBefore, wallTime);
+		ConvergenceMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.record(report);
+		}
+		return report;
+	}
+
+	/**
+	 * Starts adding the cost of every convergence run by a query or {@link #reconverge()} to the given
+	 * metrics, or stops it with null.
+	 */
+	public void setMetrics(ConvergenceMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return metrics the convergences are added to, null while metrics are off.
+	 */
+	public ConvergenceMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return number of rounds the last convergence took.
+	 */
+	public int getRoundCount() {
+		return roundCount;
+	}
+
+	/**
+	 * @return number of distance vector updates delivered since the algorithm was created.
+	 */
+	public long getSentMessageCount() {
+		return sentMessageCount;
+	}
+
 	public void initialize() {
-		// each node sends its distanceVector to its neighbours.
-		for (Node node : nodesMap.values()) {
-			sendDistanceVector(node.getDistanceVector(), node.getNeighbours(), node.getId());
+		// each node sends its distanceVector to its neighbours, later only what changes in it.
+		for (Router node : nodesMap.values()) {
+			advertise(node);
 		}
 	}
 
-	public void findShortestPath(Node source, Node destination) {
+	public ShortestPathResult findShortestPath(Router source, Router destination) {
+		if (metrics == null) {
+			converge();
+		} else {
+			reconverge();
+		}
+
+		return produceResult(source, destination);
+	}
+
+	/**
+	 * Exchanges distance vector updates in rounds until a round changes no distance vector.
+	 * 
+	 * @throws IllegalStateException if the network has not converged after the maximum rounds, which is
+	 *             left unfinished.
+	 */
+	public void converge() {
 		initialize();
 
 		int nodeCount = nodesMap.keySet().size();
+		roundCount = 0;
 
 		// run till convergence which means no distanceVectors change with the
 		// algorithm
 		while (nodeCount > 0) {
+			if (roundCount == maxRounds) {
+				throw new IllegalStateException(String.format("The network has not converged after %d rounds.", maxRounds));
+			}
 			nodeCount = nodesMap.keySet().size();
+			roundCount++;
 			for (Integer s : nodesMap.keySet()) {
 
-				Node currentNode = nodesMap.get(s);
+				Router currentNode = nodesMap.get(s);
 				// If the algorithm updated the distance vector of the node,
-				// updated distanceVector sent to neighbours.
+				// the changed entries are sent to neighbours.
 				if (currentNode.runTheAlgorithm()) {
-					Map<Integer, Double> distanceVector = currentNode.getDistanceVector();
-					Set<Integer> neighbours = currentNode.getNeighbours();
-					sendDistanceVector(distanceVector, neighbours, s);
+					advertise(currentNode);
 				} else {
 					nodeCount--;
 				}
 			}
 		}
-		
-		Node targetNode = null;
+	}
+
+	private void advertise(Router node) {
+		DistanceVectorUpdate update = node.takeDistanceVectorUpdate();
+		if (update != null) {
+			sendDistanceVectorUpdate(update, node.getNeighbours());
+		}
+	}
+
+	/**
+	 * @return the update as the given neighbour gets it under the loop prevention, the update itself if no
+	 *         entry of it is routed through the neighbour.
+	 */
+	protected DistanceVectorUpdate updateForNeighbour(DistanceVectorUpdate update, int neighbour) {
+		if (loopPrevention == LoopPrevention.NONE) {
+			return update;
+		}
+		int routedThrough = 0;
+		int kept = 0;
+		for (int i = 0; i < update.size(); i++) {
+			if (update.getFirstHop(i) != neighbour) {
+				kept++;
+			} else {
+				routedThrough++;
+				if (isWithdrawnFrom(update, i, neighbour)) {
+					kept++;
+				}
+			}
+		}
+		if (routedThrough == 0) {
+			return update;
+		}
+
+		int[] destinations = new int[kept];
+		double[] costs = new double[kept];
+		int[] firstHops = new int[kept];
+		int[] previousFirstHops = new int[kept];
+		int j = 0;
+		for (int i = 0; i < update.size(); i++) {
+			boolean through = update.getFirstHop(i) == neighbour;
+			if (through && !isWithdrawnFrom(update, i, neighbour)) {
+				continue;
+			}
+			destinations[j] = update.getDestination(i);
+			costs[j] = through ? Double.MAX_VALUE : update.getCost(i);
+			firstHops[j] = update.getFirstHop(i);
+			previousFirstHops[j] = update.getPreviousFirstHop(i);
+			j++;
+		}
+		return new DistanceVectorUpdate(update.getFromNode(), destinations, costs, firstHops, previousFirstHops);
+	}
+
+	/**
+	 * @return true if the entry, which is routed through the neighbour, is sent to it as unreachable.
+	 */
+	private boolean isWithdrawnFrom(DistanceVectorUpdate update, int i, int neighbour) {
+		return loopPrevention == LoopPrevention.POISON_REVERSE || update.getPreviousFirstHop(i) != neighbour;
+	}
+
+	private Router routerOrFail(Integer nodeId) {
+		Router node = nodesMap.get(nodeId);
+		if (node == null) {
+			throw new IllegalArgumentException(String.format("Node %d is not in the network.", nodeId));
+		}
+		return node;
+	}
+
+	/**
+	 * Reads the path off the converged routing tables by following the first hops from the source.
+	 */
+	protected ShortestPathResult produceResult(Router source, Router destination) {
 		int sourceId = source.getId();
-		String path = String.valueOf(source.getId());
-		double totalCost = 0;
-		do {
-			int targetNodeId = source.getFirstHopToDestination(destination.getId());
-			targetNode = nodesMap.get(targetNodeId);
-			totalCost += source.getDistanceVector().get(targetNodeId);
-			path += "-" + targetNode.getId();
-			
-			source = targetNode;
-		} while (targetNode.getId() != destination.getId());
+		int destinationId = destination.getId();
+		double totalCost = source.getCostToNode(destinationId);
+		if (totalCost == Double.MAX_VALUE) {
+			return ShortestPathResult.unreachable(sourceId, destinationId, -1);
+		}
+
+		// follow the first hops from the source, a path visits every node at most once
+		int[] path = new int[nodesMap.size()];
+		int pathLength = 0;
+		path[pathLength++] = sourceId;
+		Router currentNode = source;
+		while (currentNode.getId() != destinationId) {
+			currentNode = nodesMap.get(currentNode.getFirstHopToDestination(destinationId));
+			path[pathLength++] = currentNode.getId();
+		}
 		
-		System.out.println(String.format("Cost from %d to %d: %f", sourceId, destination.getId(), totalCost));
-		System.out.println("Path: " + path);
+		return new ShortestPathResult(sourceId, destinationId, totalCost, Arrays.copyOf(path, pathLength), -1);
 	}
 }
@@ -0,0 +1,267 @@
+package algorithms;
+
+import java.util.Arrays;
+
+import model.DynamicGraph;
+import model.GraphChangeListener;
+import model.Vertex;
+
+/**
+ * Shortest path tree from one source in a {@link DynamicGraph}, repaired on every change of the graph
+ * instead of being recomputed, in the manner of Ramalingam and Reps.
+ *
+ * An edge which gets lighter, or is added, can only shorten paths through its target, so Dijkstra's
+ * algorithm is resumed from the target and stops where distances no longer improve. An edge which gets
+ * heavier, or is removed, changes nothing unless it is an edge of the tree; if it is, only the subtree
+ * below it may get longer paths. Those vertexes are detached, seeded from their incoming edges out of the
+ * rest of the tree and settled again by a Dijkstra confined to the subtree. Either way the work is bounded
+ * by the vertexes whose paths actually change, or by the subtree, together with their edges.
+ *
+ * The tree listens to the graph until {@link #detach()} is called. It is not safe for concurrent use, the
+ * graph must be changed by one thread at a time and the tree read by that thread.
+ *
+ * @author mehmet
+ *
+ */
+public class DynamicShortestPathTree implements GraphChangeListener {
+
+	private final DynamicGraph graph;
+	private final int indexOfSource;
+
+	private final double[] distances;
+	private final int[] parents;
+	// children of each vertex in the tree as a doubly linked list, -1 ends it
+	private final int[] firstChildren;
+	private final int[] nextSiblings;
+	private final int[] previousSiblings;
+
+	private final IndexedHeap heap;
+	// vertexes of the subtree being repaired are stamped with the current repair
+	private final int[] affectedStamps;
+	private int repair;
+	private final IntList affected = new IntList();
+	private int lastRepairSize;
+
+	public DynamicShortestPathTree(DynamicGraph graph, Vertex source) {
+		this.graph = graph;
+		indexOfSource = graph.getIndex(source.getId());
+		if (indexOfSource < 0) {
+			throw new IllegalArgumentException(String.format("Vertex %d is not in the graph.", source.getId()));
+		}
+		int vertexCount = graph.getVertexCount();
+		distances = new double[vertexCount];
+		parents = new int[vertexCount];
+		firstChildren = new int[vertexCount];
+		nextSiblings = new int[vertexCount];
+		previousSiblings = new int[vertexCount];
+		affectedStamps = new int[vertexCount];
+		heap = new IndexedHeap(vertexCount);
+
+		Arrays.fill(distances, Double.MAX_VALUE);
+		Arrays.fill(parents, -1);
+		Arrays.fill(firstChildren, -1);
+		Arrays.fill(nextSiblings, -1);
+		Arrays.fill(previousSiblings, -1);
+		distances[indexOfSource] = 0;
+		heap.insertOrDecrease(indexOfSource, 0);
+		lastRepairSize = propagateDecrease();
+
+		graph.addListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the graph.
+	 */
+	public void detach() {
+		graph.removeListener(this);
+	}
+
+	public Vertex getSource() {
+		return graph.getVertex(indexOfSource);
+	}
+
+	/**
+	 * @return length of the shortest path from the source, Double.MAX_VALUE if the vertex is unreachable.
+	 */
+	public double getDistance(Vertex vertex) {
+		return distances[indexOrFail(vertex)];
+	}
+
+	public ShortestPathResult findShortestPathTo(Vertex destination) {
+		int indexOfDestination = indexOrFail(destination);
+		int sourceId = graph.getId(indexOfSource);
+		if (distances[indexOfDestination] == Double.MAX_VALUE) {
+			return ShortestPathResult.unreachable(sourceId, destination.getId(), -1);
+		}
+
+		int pathLength = 1;
+		for (int v = indexOfDestination; v != indexOfSource; v = parents[v]) {
+			pathLength++;
+		}
+		int[] path = new int[pathLength];
+		for (int v = indexOfDestination; pathLength > 0; v = parents[v]) {
+			path[--pathLength] = graph.getId(v);
+		}
+		return new ShortestPathResult(sourceId, destination.getId(), distances[indexOfDestination], path, -1);
+	}
+
+	/**
+	 * @return number of vertexes whose distance the last change of the graph recomputed, for comparison with
+	 *         the vertex count a full recomputation would settle.
+	 */
+	public int getLastRepairSize() {
+		return lastRepairSize;
+	}
+
+	@Override
+	public void edgeAdded(int sourceIndex, int targetIndex, double weight) {
+		lastRepairSize = decrease(sourceIndex, targetIndex, weight);
+	}
+
+	@Override
+	public void edgeRemoved(int sourceIndex, int targetIndex, double weight) {
+		lastRepairSize = parents[targetIndex] == sourceIndex ? increase(targetIndex) : 0;
+	}
+
+	@Override
+	public void weightChanged(int sourceIndex, int targetIndex, double oldWeight, double newWeight) {
+		if (newWeight < oldWeight) {
+			lastRepairSize = decrease(sourceIndex, targetIndex, newWeight);
+		} else {
+			lastRepairSize = parents[targetIndex] == sourceIndex ? increase(targetIndex) : 0;
+		}
+	}
+
+	/**
+	 * Repairs the tree after the edge got lighter or was added.
+	 */
+	private int decrease(int sourceIndex, int targetIndex, double weight) {
+		if (distances[sourceIndex] == Double.MAX_VALUE || distances[sourceIndex] + weight >= distances[targetIndex]) {
+			return 0;
+		}
+		distances[targetIndex] = distances[sourceIndex] + weight;
+		setParent(targetIndex, sourceIndex);
+		heap.insertOrDecrease(targetIndex, distances[targetIndex]);
+		return propagateDecrease();
+	}
+
+	/**
+	 * Settles the vertexes in the heap and whatever their shorter distances improve.
+	 *
+	 * @return number of vertexes settled.
+	 */
+	private int propagateDecrease() {
+		int settled = 0;
+		while (!heap.isEmpty()) {
+			int index = heap.poll();
+			settled++;
+			for (int k = 0; k < graph.getOutDegree(index); k++) {
+				int target = graph.getOutTarget(index, k);
+				double distance = distances[index] + graph.getOutWeight(index, k);
+				if (distance < distances[target]) {
+					distances[target] = distance;
+					setParent(target, index);
+					heap.insertOrDecrease(target, distance);
+				}
+			}
+		}
+		return settled;
+	}
+
+	/**
+	 * Repairs the tree after the edge into the given vertex from its parent got heavier or was removed.
+	 */
+	private int increase(int subtreeRoot) {
+		repair++;
+		affected.clear();
+		affected.add(subtreeRoot);
+		affectedStamps[subtreeRoot] = repair;
+		for (int i = 0; i < affected.size(); i++) {
+			for (int child = firstChildren[affected.get(i)]; child >= 0; child = nextSiblings[child]) {
+				affected.add(child);
+				affectedStamps[child] = repair;
+			}
+		}
+
+		for (int i = 0; i < affected.size(); i++) {
+			int index = affected.get(i);
+			distances[index] = Double.MAX_VALUE;
+			setParent(index, -1);
+		}
+
+		// the rest of the tree keeps its distances, the subtree is entered through its incoming edges
+		for (int i = 0; i < affected.size(); i++) {
+			int index = affected.get(i);
+			for (int k = 0; k < graph.getInDegree(index); k++) {
+				int source = graph.getInSource(index, k);
+				if (affectedStamps[source] == repair || distances[source] == Double.MAX_VALUE) {
+					continue;
+				}
+				double distance = distances[source] + graph.getInWeight(index, k);
+				if (distance < distances[index]) {
+					distances[index] = distance;
+					setParent(index, source);
+				}
+			}
+			if (distances[index] != Double.MAX_VALUE) {
+				heap.insertOrDecrease(index, distances[index]);
+			}
+		}
+
+		// no distance outside the subtree can get shorter, so the search does not leave it
+		while (!heap.isEmpty()) {
+			int index = heap.poll();
+			for (int k = 0; k < graph.getOutDegree(index); k++) {
+				int target = graph.getOutTarget(index, k);
+				if (affectedStamps[target] != repair) {
+					continue;
+				}
+				double distance = distances[index] + graph.getOutWeight(index, k);
+				if (distance < distances[target]) {
+					distances[target] = distance;
+					setParent(target, index);
+					heap.insertOrDecrease(target, distance);
+				}
+			}
+		}
+		return affected.size();
+	}
+
+	/**
+	 * Moves the vertex under a new parent in the tree, -1 takes it out of the tree.
+	 */
+	private void setParent(int index, int parent) {
+		int oldParent = parents[index];
+		if (oldParent == parent) {
+			return;
+		}
+		if (oldParent >= 0) {
+			if (previousSiblings[index] >= 0) {
+				nextSiblings[previousSiblings[index]] = nextSiblings[index];
+			} else {
+				firstChildren[oldParent] = nextSiblings[index];
+			}
+			if (nextSiblings[index] >= 0) {
+				previousSiblings[nextSiblings[index]] = previousSiblings[index];
+			}
+		}
+		parents[index] = parent;
+		previousSiblings[index] = -1;
+		nextSiblings[index] = -1;
+		if (parent >= 0) {
+			nextSiblings[index] = firstChildren[parent];
+			if (firstChildren[parent] >= 0) {
+				previousSiblings[firstChildren[parent]] = index;
+			}
+			firstChildren[parent] = index;
+		}
+	}
+
+	private int indexOrFail(Vertex vertex) {
+		int index = graph.getIndex(vertex.getId());
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Vertex %d is not in the graph.", vertex.getId()));
+		}
+		return index;
+	}
+}
@@ -0,0 +1,44 @@
+package algorithms;
+
+import model.CompressedGraph;
+
+/**
+ * Straight line distance between the coordinates of two vertexes on the plane. The estimate is admissible
+ * as long as no edge is cheaper than costPerUnit times the straight line distance between its ends.
+ * 
+ * @author mehmet
+ *
+ */
+public class EuclideanHeuristic implements Heuristic {
+
+	private final double costPerUnit;
+
+	/**
+	 * Estimates for graphs whose edge weights are at least the distances between their ends.
+	 */
+	public EuclideanHeuristic() {
+		this(1);
+	}
+
+	/**
+	 * @param costPerUnit smallest cost of travelling one unit of distance anywhere in the graph.
+	 */
+	public EuclideanHeuristic(double costPerUnit) {
+		this.costPerUnit = costPerUnit;
+	}
+
+	@Override
+	public Estimator prepare(final CompressedGraph graph) {
+		if (!graph.hasCoordinates()) {
+			throw new IllegalArgumentException("Euclidean heuristic needs coordinates for every vertex.");
+		}
+		return new Estimator() {
+			@Override
+			public double estimate(int index, int indexOfDestination) {
+				double dx = graph.getX(index) - graph.getX(indexOfDestination);
+				double dy = graph.getY(index) - graph.getY(indexOfDestination);
+				return Math.sqrt(dx * dx + dy * dy) * costPerUnit;
+			}
+		};
+	}
+}
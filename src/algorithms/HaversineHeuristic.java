@@ -0,0 +1,57 @@
+package algorithms;
+
+import model.CompressedGraph;
+
+/**
+ * Great circle distance in metres between two vertexes whose coordinates are longitude (x) and latitude
+ * (y) in degrees. The estimate is admissible as long as no edge is cheaper than costPerMetre times the
+ * great circle distance between its ends.
+ * 
+ * @author mehmet
+ *
+ */
+public class HaversineHeuristic implements Heuristic {
+
+	// mean radius of the earth
+	private static final double EARTH_RADIUS_IN_METRES = 6371008.8;
+
+	private final double costPerMetre;
+
+	/**
+	 * Estimates for graphs whose edge weights are lengths in metres.
+	 */
+	public HaversineHeuristic() {
+		this(1);
+	}
+
+	/**
+	 * @param costPerMetre smallest cost of travelling one metre anywhere in the graph, e.g. the inverse of
+	 *            the highest speed for travel time weights.
+	 */
+	public HaversineHeuristic(double costPerMetre) {
+		this.costPerMetre = costPerMetre;
+	}
+
+	@Override
+	public Estimator prepare(final CompressedGraph graph) {
+		if (!graph.hasCoordinates()) {
+			throw new IllegalArgumentException("Haversine heuristic needs coordinates for every vertex.");
+		}
+		return new Estimator() {
+			@Override
+			public double estimate(int index, int indexOfDestination) {
+				// a tiny margin keeps floating point rounding from overestimating
+				return greatCircleDistance(graph, index, indexOfDestination) * costPerMetre * (1 - 1e-9);
+			}
+		};
+	}
+
+	private static double greatCircleDistance(CompressedGraph graph, int index, int indexOfDestination) {
+		double latitude1 = Math.toRadians(graph.getY(index));
+		double latitude2 = Math.toRadians(graph.getY(indexOfDestination));
+		double sinHalfLatitude = Math.sin((latitude2 - latitude1) / 2);
+		double sinHalfLongitude = Math.sin(Math.toRadians(graph.getX(indexOfDestination) - graph.getX(index)) / 2);
+		double a = sinHalfLatitude * sinHalfLatitude + Math.cos(latitude1) * Math.cos(latitude2) * sinHalfLongitude * sinHalfLongitude;
+		return 2 * EARTH_RADIUS_IN_METRES * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+}
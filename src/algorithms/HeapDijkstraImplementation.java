@@ -0,0 +1,51 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Dijkstra's algorithm driven by an {@link IndexedHeap} instead of scanning every vertex for the minimum
+ * distance. Each extraction and decrease-key costs O(log V), so a query runs in O((V + E) log V) rather
+ * than the O(V^2) of {@link DijkstraImplementation}, which is kept for comparison on the same inputs.
+ * 
+ * The heap belongs to the {@link QueryContext}, so it is allocated once and reused by every query.
+ * 
+ * @author mehmet
+ *
+ */
+public class HeapDijkstraImplementation extends DijkstraImplementation {
+
+	public HeapDijkstraImplementation(Graph graph) {
+		super(graph);
+	}
+
+	public HeapDijkstraImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) {
+		IndexedHeap heap = context.getHeap();
+		heap.insertOrDecrease(context.getIndexOfSource(), 0);
+		while (!heap.isEmpty()) {
+			int index = heap.poll();
+			context.settle(index);
+
+			//terminate the algorithm here since the shortest paths to the destination (or every target) are found.
+			if (context.isSearchComplete()) {
+				break;
+			}
+
+			double distance = context.getDistance(index);
+			context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				double alt = distance + compressedGraph.getWeight(edge);
+				if (alt < context.getDistance(neighbourIndex) && !context.isSettled(neighbourIndex)) {
+					context.update(neighbourIndex, alt, index);
+					heap.insertOrDecrease(neighbourIndex, alt);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package algorithms;
+
+import model.CompressedGraph;
+
+/**
+ * Estimate of the remaining distance to the destination which guides {@link AStarImplementation}.
+ * 
+ * An estimate must never exceed the real distance (admissible) and must not drop by more than the weight
+ * of an edge when moving along it (consistent), otherwise A* may settle a vertex before its shortest path
+ * is found. Estimates are asked for concurrently by parallel queries, so they must not change any state.
+ * 
+ * Whatever the estimates need of a graph is kept by the {@link Estimator} prepared for it, not by the
+ * heuristic, so one heuristic may be passed to algorithms on different graphs.
+ * 
+ * @author mehmet
+ *
+ */
+public interface Heuristic {
+
+	/**
+	 * Called once by each algorithm, before any query, with the graph the estimates will be asked for.
+	 * 
+	 * @return the estimates for this graph.
+	 */
+	Estimator prepare(CompressedGraph graph);
+
+	interface Estimator {
+
+		/**
+		 * @return lower bound of the distance from the vertex at index to the vertex at indexOfDestination.
+		 */
+		double estimate(int index, int indexOfDestination);
+	}
+}
@@ -0,0 +1,117 @@
+package algorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative values such as latencies in nanoseconds, recorded without locking from any
+ * number of threads.
+ *
+ * Values below 16 are counted exactly. Larger ones fall into one of eight buckets per power of two, so a
+ * percentile is at most 12.5% above the true one, and the whole range of long fits into a few hundred
+ * counters.
+ *
+ * @author mehmet
+ *
+ */
+public class Histogram {
+
+	private static final int EXACT_VALUES = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// first power of two split into sub buckets, 2^4 = EXACT_VALUES
+	private static final int FIRST_EXPONENT = 4;
+	private static final int BUCKET_COUNT = EXACT_VALUES + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return average of the recorded values, 0 if there is none.
+	 */
+	public double getMean() {
+		long recorded = count.get();
+		return recorded == 0 ? 0 : (double) sum.get() / recorded;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile.
+	 * @return upper bound of the bucket holding the percentile, 0 if no value was recorded.
+	 */
+	public long getPercentile(double fraction) {
+		long recorded = count.get();
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(bucket), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Forgets every recorded value. Values recorded at the same time may or may not be kept.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			counts.set(bucket, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count %d, mean %.1f, p50 %d, p90 %d, p99 %d, max %d", getCount(), getMean(), getPercentile(0.5), getPercentile(0.9),
+				getPercentile(0.99), getMax());
+	}
+
+	private static int bucketOf(long value) {
+		if (value < EXACT_VALUES) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return EXACT_VALUES + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < EXACT_VALUES) {
+			return bucket;
+		}
+		int exponent = (bucket - EXACT_VALUES) / SUB_BUCKETS + FIRST_EXPONENT;
+		long subBucket = (bucket - EXACT_VALUES) % SUB_BUCKETS;
+		long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return lowerBound + width - 1;
+	}
+}
@@ -0,0 +1,149 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap of vertex indexes keyed by their tentative distances.
+ *
+ * Everything lives in primitive arrays sized for the vertex count, so inserting, decreasing a key and
+ * polling the minimum never allocate. A 4-ary heap is shallower than a binary one and its children share
+ * cache lines, which pays off on the many decrease-key operations of Dijkstra's algorithm.
+ *
+ * @author mehmet
+ *
+ */
+public class IndexedHeap {
+
+	private static final int ARITY = 4;
+
+	private final int[] heap;
+	// position of each vertex in the heap, -1 if it is not in the heap
+	private final int[] positions;
+	private final double[] keys;
+	private int size;
+	// inserts, decreases and polls since the heap was last cleared
+	private long operationCount;
+
+	public IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int vertex) {
+		return positions[vertex] >= 0;
+	}
+
+	/**
+	 * Adds the vertex with the given key, or lowers its key if it is already in the heap. Keys are never
+	 * increased.
+	 */
+	public void insertOrDecrease(int vertex, double key) {
+		int position = positions[vertex];
+		if (position < 0) {
+			position = size++;
+			heap[position] = vertex;
+			positions[vertex] = position;
+		} else if (key >= keys[vertex]) {
+			return;
+		}
+		keys[vertex] = key;
+		operationCount++;
+		siftUp(position);
+	}
+
+	/**
+	 * Removes and returns the vertex with the smallest key.
+	 */
+	public int poll() {
+		int top = heap[0];
+		positions[top] = -1;
+		operationCount++;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			positions[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	public double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Empties the heap in time proportional to its current size rather than its capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+		operationCount = 0;
+	}
+
+	/**
+	 * @return number of inserts, key decreases and polls since the heap was created or last cleared.
+	 */
+	public long getOperationCount() {
+		return operationCount;
+	}
+
+	private void siftUp(int position) {
+		int vertex = heap[position];
+		double key = keys[vertex];
+		while (position > 0) {
+			int parentPosition = (position - 1) / ARITY;
+			int parent = heap[parentPosition];
+			if (keys[parent] <= key) {
+				break;
+			}
+			heap[position] = parent;
+			positions[parent] = position;
+			position = parentPosition;
+		}
+		heap[position] = vertex;
+		positions[vertex] = position;
+	}
+
+	private void siftDown(int position) {
+		int vertex = heap[position];
+		double key = keys[vertex];
+		while (true) {
+			int firstChild = position * ARITY + 1;
+			if (firstChild >= size) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + ARITY, size);
+			int smallestPosition = firstChild;
+			double smallestKey = keys[heap[firstChild]];
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				double childKey = keys[heap[child]];
+				if (childKey < smallestKey) {
+					smallestKey = childKey;
+					smallestPosition = child;
+				}
+			}
+			if (smallestKey >= key) {
+				break;
+			}
+			int smallest = heap[smallestPosition];
+			heap[position] = smallest;
+			positions[smallest] = position;
+			position = smallestPosition;
+		}
+		heap[position] = vertex;
+		positions[vertex] = position;
+	}
+}
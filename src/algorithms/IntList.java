@@ -0,0 +1,57 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, so that collecting vertex indexes does not box them.
+ * 
+ * @author mehmet
+ *
+ */
+class IntList {
+
+	private int[] values;
+	private int size;
+
+	IntList() {
+		this(16);
+	}
+
+	IntList(int capacity) {
+		values = new int[Math.max(1, capacity)];
+	}
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	int get(int position) {
+		return values[position];
+	}
+
+	/**
+	 * Removes and returns the last value, so the list can serve as a stack.
+	 */
+	int removeLast() {
+		return values[--size];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+}
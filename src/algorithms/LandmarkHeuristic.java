@@ -0,0 +1,135 @@
+package algorithms;
+
+import java.util.Arrays;
+
+import model.CompressedGraph;
+
+/**
+ * ALT (A*, landmarks and the triangle inequality) lower bounds, which need no coordinates.
+ * 
+ * The distances from and to a few landmark vertexes are computed once. For any landmark L the triangle
+ * inequality gives d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L), and the estimate is the
+ * largest of these bounds. Landmarks are picked one after the other as the vertex farthest from the ones
+ * picked so far, which tends to put them on the border of the graph where the bounds are tight.
+ * 
+ * @author mehmet
+ *
+ */
+public class LandmarkHeuristic implements Heuristic {
+
+	private final int landmarkCount;
+
+	public LandmarkHeuristic(int landmarkCount) {
+		if (landmarkCount < 1) {
+			throw new IllegalArgumentException("At least one landmark is needed.");
+		}
+		this.landmarkCount = landmarkCount;
+	}
+
+	/**
+	 * @return the landmarks of the graph and their distances.
+	 */
+	@Override
+	public Landmarks prepare(CompressedGraph graph) {
+		int vertexCount = graph.getVertexCount();
+		int count = Math.min(landmarkCount, vertexCount);
+		if ((long) vertexCount * count > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException(String.format("The distances of %d vertexes to %d landmarks do not fit into an array, use fewer landmarks.",
+					vertexCount, count));
+		}
+		int[] landmarks = new int[count];
+		double[] fromLandmarks = new double[vertexCount * count];
+		double[] toLandmarks = new double[vertexCount * count];
+		Arrays.fill(fromLandmarks, Double.MAX_VALUE);
+		Arrays.fill(toLandmarks, Double.MAX_VALUE);
+
+		IndexedHeap heap = new IndexedHeap(vertexCount);
+		double[] distances = new double[vertexCount];
+		// smallest distance of each vertex from the landmarks picked so far
+		double[] nearestLandmark = new double[vertexCount];
+		Arrays.fill(nearestLandmark, Double.MAX_VALUE);
+		int landmark = 0;
+		for (int l = 0; l < count; l++) {
+			landmarks[l] = landmark;
+			distancesFrom(graph, landmark, heap, distances);
+			for (int v = 0; v < vertexCount; v++) {
+				fromLandmarks[v * count + l] = distances[v];
+				nearestLandmark[v] = Math.min(nearestLandmark[v], distances[v]);
+			}
+			distancesFrom(graph.getReverse(), landmark, heap, distances);
+			for (int v = 0; v < vertexCount; v++) {
+				toLandmarks[v * count + l] = distances[v];
+			}
+
+			// vertexes unreachable from every landmark so far come first, they get no bound at all yet
+			landmark = 0;
+			for (int v = 1; v < vertexCount; v++) {
+				if (nearestLandmark[v] > nearestLandmark[landmark]) {
+					landmark = v;
+				}
+			}
+		}
+		return new Landmarks(landmarks, fromLandmarks, toLandmarks);
+	}
+
+	private static void distancesFrom(CompressedGraph graph, int source, IndexedHeap heap, double[] distances) {
+		Arrays.fill(distances, Double.MAX_VALUE);
+		distances[source] = 0;
+		heap.insertOrDecrease(source, 0);
+		while (!heap.isEmpty()) {
+			int index = heap.poll();
+			for (int edge = graph.getEdgesBegin(index), end = graph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = graph.getTarget(edge);
+				double alt = distances[index] + graph.getWeight(edge);
+				if (alt < distances[neighbourIndex]) {
+					distances[neighbourIndex] = alt;
+					heap.insertOrDecrease(neighbourIndex, alt);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The landmarks chosen for one graph with the distances from and to them.
+	 */
+	public static class Landmarks implements Estimator {
+
+		private final int[] landmarks;
+		// distances of vertex v are stored at v * landmarks.length .. (v + 1) * landmarks.length - 1
+		private final double[] fromLandmarks;
+		private final double[] toLandmarks;
+
+		Landmarks(int[] landmarks, double[] fromLandmarks, double[] toLandmarks) {
+			this.landmarks = landmarks;
+			this.fromLandmarks = fromLandmarks;
+			this.toLandmarks = toLandmarks;
+		}
+
+		/**
+		 * @return indexes of the chosen landmark vertexes.
+		 */
+		public int[] getLandmarks() {
+			return landmarks;
+		}
+
+		@Override
+		public double estimate(int index, int indexOfDestination) {
+			double estimate = 0;
+			int vertexOffset = index * landmarks.length;
+			int destinationOffset = indexOfDestination * landmarks.length;
+			for (int l = 0; l < landmarks.length; l++) {
+				double fromLandmarkToDestination = fromLandmarks[destinationOffset + l];
+				double fromLandmarkToVertex = fromLandmarks[vertexOffset + l];
+				if (fromLandmarkToDestination != Double.MAX_VALUE && fromLandmarkToVertex != Double.MAX_VALUE) {
+					estimate = Math.max(estimate, fromLandmarkToDestination - fromLandmarkToVertex);
+				}
+				double fromVertexToLandmark = toLandmarks[vertexOffset + l];
+				double fromDestinationToLandmark = toLandmarks[destinationOffset + l];
+				if (fromVertexToLandmark != Double.MAX_VALUE && fromDestinationToLandmark != Double.MAX_VALUE) {
+					estimate = Math.max(estimate, fromVertexToLandmark - fromDestinationToLandmark);
+				}
+			}
+			return estimate;
+		}
+	}
+}
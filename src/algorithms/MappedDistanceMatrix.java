@@ -0,0 +1,133 @@
+package algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link DistanceMatrix} kept in a file mapped into memory, for tables larger than the heap. The
+ * operating system pages the rows in and out as they are used.
+ *
+ * Layout, little endian: int magic, int version, int row count, int column count, then the distances row
+ * after row. A single mapping cannot be larger than 2 GB, so the rows are mapped in chunks.
+ *
+ * Reads and writes use absolute positions only, so threads may work on different rows at the same time.
+ *
+ * @author mehmet
+ *
+ */
+public class MappedDistanceMatrix extends DistanceMatrix {
+
+	// "SPDM"
+	private static final int MAGIC = 0x5350444d;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+	private final int columnCount;
+	private final int rowsPerChunk;
+	private final MappedByteBuffer[] mappings;
+	private final DoubleBuffer[] chunks;
+
+	private MappedDistanceMatrix(FileChannel channel, FileChannel.MapMode mode, int rowCount, int columnCount) throws IOException {
+		super(rowCount, columnCount, null);
+		this.columnCount = columnCount;
+		long rowSize = 8L * Math.max(1, columnCount);
+		rowsPerChunk = (int) Math.max(1, Math.min(rowCount, MAX_CHUNK_SIZE / rowSize));
+		int chunkCount = rowCount == 0 ? 0 : (rowCount + rowsPerChunk - 1) / rowsPerChunk;
+		mappings = new MappedByteBuffer[chunkCount];
+		chunks = new DoubleBuffer[chunkCount];
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			int rows = Math.min(rowsPerChunk, rowCount - chunk * rowsPerChunk);
+			mappings[chunk] = channel.map(mode, HEADER_SIZE + chunk * rowsPerChunk * rowSize, rows * rowSize);
+			chunks[chunk] = mappings[chunk].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Creates the file, replacing any file of the same name, with every distance 0.
+	 */
+	public static MappedDistanceMatrix create(File file, int rowCount, int columnCount) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			randomAccessFile.setLength(0);
+			randomAccessFile.setLength(HEADER_SIZE + 8L * rowCount * columnCount);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(columnCount);
+			header.flip();
+			channel.write(header, 0);
+			return new MappedDistanceMatrix(channel, FileChannel.MapMode.READ_WRITE, rowCount, columnCount);
+		} finally {
+			// the mappings stay valid after the channel is closed
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Maps a matrix written earlier, read only.
+	 *
+	 * @throws IOException if the file is not a distance matrix or is truncated.
+	 */
+	public static MappedDistanceMatrix open(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.size() < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+				throw new IOException(String.format("%s is not a distance matrix file.", file));
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(String.format("%s has unsupported version %d.", file, header.getInt(4)));
+			}
+			int rowCount = header.getInt(8);
+			int columnCount = header.getInt(12);
+			if (channel.size() < HEADER_SIZE + 8L * rowCount * columnCount) {
+				throw new IOException(String.format("%s is truncated.", file));
+			}
+			return new MappedDistanceMatrix(channel, FileChannel.MapMode.READ_ONLY, rowCount, columnCount);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Writes the changed pages to the file.
+	 */
+	public void flush() {
+		for (MappedByteBuffer mapping : mappings) {
+			if (!mapping.isReadOnly()) {
+				mapping.force();
+			}
+		}
+	}
+
+	@Override
+	public double get(int row, int column) {
+		return chunks[row / rowsPerChunk].get((row % rowsPerChunk) * columnCount + column);
+	}
+
+	@Override
+	void set(int row, int column, double distance) {
+		chunks[row / rowsPerChunk].put((row % rowsPerChunk) * columnCount + column, distance);
+	}
+
+	@Override
+	public void getRow(int row, int column, double[] destination, int offset, int length) {
+		DoubleBuffer view = chunks[row / rowsPerChunk].duplicate();
+		view.position((row % rowsPerChunk) * columnCount + column);
+		view.get(destination, offset, length);
+	}
+
+	@Override
+	void setRow(int row, int column, double[] source, int offset, int length) {
+		DoubleBuffer view = chunks[row / rowsPerChunk].duplicate();
+		view.position((row % rowsPerChunk) * columnCount + column);
+		view.put(source, offset, length);
+	}
+}
@@ -0,0 +1,220 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Bellman-Ford with the edges of each round relaxed by several threads.
+ * 
+ * The vertexes are split into ranges holding about the same number of incoming edges, and each range is
+ * owned by one task. In a round every task computes the new distances of its own vertexes from their
+ * incoming edges, reading the distances of the previous round and writing into a second array. No two
+ * tasks write the same slot, so neither atomics nor locks are needed; the end of the round is the barrier,
+ * after which the per-range change flags are combined and the arrays swapped.
+ * 
+ * Rounds that only read the previous round's distances converge in at most V - 1 rounds just like the
+ * sequential algorithm, the results are identical and do not depend on the number of threads. A change
+ * in round V reveals a negative cycle, which the previous vertexes then contain.
+ * 
+ * @author mehmet
+ *
+ */
+public class ParallelBellmanFordImplementation extends BellmanFordImplementation {
+
+	private final ForkJoinPool pool;
+	// incoming edges of each vertex
+	private final CompressedGraph reverseGraph;
+	// range p holds the vertexes rangeStarts[p] .. rangeStarts[p + 1] - 1
+	private final int[] rangeStarts;
+
+	public ParallelBellmanFordImplementation(Graph graph) {
+		this(graph, new ForkJoinPool());
+	}
+
+	public ParallelBellmanFordImplementation(Graph graph, ForkJoinPool pool) {
+		super(graph);
+		this.pool = pool;
+		this.reverseGraph = compressedGraph.getReverse();
+		this.rangeStarts = splitVertexes(pool.getParallelism() * 4);
+	}
+
+	public ParallelBellmanFordImplementation(CompressedGraph compressedGraph) {
+		this(compressedGraph, new ForkJoinPool());
+	}
+
+	public ParallelBellmanFordImplementation(CompressedGraph compressedGraph, ForkJoinPool pool) {
+		super(compressedGraph);
+		this.pool = pool;
+		this.reverseGraph = compressedGraph.getReverse();
+		this.rangeStarts = splitVertexes(pool.getParallelism() * 4);
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) throws Exception {
+		// the double buffers stay with the context from query to query
+		Rounds rounds = context.getWorkspace() instanceof Rounds ? (Rounds) context.getWorkspace() : null;
+		if (rounds == null || !rounds.belongsTo(this)) {
+			rounds = new Rounds();
+			context.setWorkspace(rounds);
+		}
+		rounds.start(context.getIndexOfSource());
+		pool.invoke(rounds);
+		// every round looks at every edge
+		context.addRelaxedEdges((long) rounds.roundCount * reverseGraph.getEdgeCount());
+
+		for (int index = 0; index < rounds.distances.length; index++) {
+			if (rounds.distances[index] != Double.MAX_VALUE) {
+				context.update(index, rounds.distances[index], rounds.previous[index]);
+			}
+		}
+		if (rounds.changedIndex >= 0) {
+			throw new NegativeCycleException(findCycle(context, rounds.changedIndex));
+		}
+	}
+
+	/**
+	 * Stops the worker threads of the pool. The algorithm cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private int[] splitVertexes(int rangeCount) {
+		int vertexCount = reverseGraph.getVertexCount();
+		rangeCount = Math.max(1, Math.min(rangeCount, vertexCount));
+		int[] starts = new int[rangeCount + 1];
+		// a vertex also counts as one edge so that ranges of vertexes without incoming edges stay bounded
+		long totalWork = (long) reverseGraph.getEdgeCount() + vertexCount;
+		int index = 0;
+		for (int range = 1; range < rangeCount; range++) {
+			long rangeEnd = totalWork * range / rangeCount;
+			while (index < vertexCount && (long) reverseGraph.getEdgesBegin(index) + index < rangeEnd) {
+				index++;
+			}
+			starts[range] = index;
+		}
+		starts[rangeCount] = vertexCount;
+		return starts;
+	}
+
+	// state of the queries of one context, the rounds run inside the pool
+	private class Rounds extends RecursiveAction {
+
+		private static final long serialVersionUID = 6471069224573829160L;
+
+		double[] distances;
+		int[] previous;
+		double[] nextDistances;
+		int[] nextPrevious;
+		// a vertex of each range whose distance decreased in the current round, -1 if none did
+		final int[] changedIndexes;
+		// vertex changed by round V, -1 if the distances converged
+		int changedIndex;
+		int roundCount;
+
+		Rounds() {
+			int vertexCount = reverseGraph.getVertexCount();
+			distances = new double[vertexCount];
+			previous = new int[vertexCount];
+			nextDistances = new double[vertexCount];
+			nextPrevious = new int[vertexCount];
+			changedIndexes = new int[rangeStarts.length - 1];
+		}
+
+		boolean belongsTo(ParallelBellmanFordImplementation algorithm) {
+			return ParallelBellmanFordImplementation.this == algorithm;
+		}
+
+		/**
+		 * Prepares the buffers and the task for a query. Every round overwrites all of the next buffers, so
+		 * only the current ones need to be filled.
+		 */
+		void start(int indexOfSource) {
+			reinitialize();
+			Arrays.fill(distances, Double.MAX_VALUE);
+			Arrays.fill(previous, -1);
+			distances[indexOfSource] = 0;
+			changedIndex = -1;
+			roundCount = 0;
+		}
+
+		@Override
+		protected void compute() {
+			int vertexCount = distances.length;
+			RangeRound[] tasks = new RangeRound[changedIndexes.length];
+			for (int round = 1; round <= vertexCount; round++) {
+				roundCount = round;
+				for (int range = 0; range < tasks.length; range++) {
+					tasks[range] = new RangeRound(this, range);
+				}
+				invokeAll(tasks);
+
+				int changed = -1;
+				for (int range = 0; range < changedIndexes.length; range++) {
+					changed = Math.max(changed, changedIndexes[range]);
+				}
+				double[] swapDistances = distances;
+				distances = nextDistances;
+				nextDistances = swapDistances;
+				int[] swapPrevious = previous;
+				previous = nextPrevious;
+				nextPrevious = swapPrevious;
+
+				if (changed < 0) {
+					return;
+				}
+				if (round == vertexCount) {
+					changedIndex = changed;
+				}
+			}
+		}
+	}
+
+	// one round of relaxations into the vertexes of one range
+	private class RangeRound extends RecursiveAction {
+
+		private static final long serialVersionUID = -4580148338016945032L;
+
+		private final Rounds rounds;
+		private final int range;
+
+		RangeRound(Rounds rounds, int range) {
+			this.rounds = rounds;
+			this.range = range;
+		}
+
+		@Override
+		protected void compute() {
+			double[] distances = rounds.distances;
+			int[] previous = rounds.previous;
+			double[] nextDistances = rounds.nextDistances;
+			int[] nextPrevious = rounds.nextPrevious;
+			int changedIndex = -1;
+			for (int index = rangeStarts[range], end = rangeStarts[range + 1]; index < end; index++) {
+				double best = distances[index];
+				int bestPrevious = previous[index];
+				for (int edge = reverseGraph.getEdgesBegin(index), edgesEnd = reverseGraph.getEdgesEnd(index); edge < edgesEnd; edge++) {
+					double sourceDistance = distances[reverseGraph.getTarget(edge)];
+					if (sourceDistance == Double.MAX_VALUE) {
+						continue;
+					}
+					double alt = sourceDistance + reverseGraph.getWeight(edge);
+					if (alt < best) {
+						best = alt;
+						bestPrevious = reverseGraph.getTarget(edge);
+					}
+				}
+				nextDistances[index] = best;
+				nextPrevious[index] = bestPrevious;
+				if (best < distances[index]) {
+					changedIndex = index;
+				}
+			}
+			rounds.changedIndexes[range] = changedIndex;
+		}
+	}
+}
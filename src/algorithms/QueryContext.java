@@ -0,0 +1,331 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Per-query workspace of a {@link ShortestPathAlgorithm}: tentative distances, previous vertexes and the
+ * settled flags of a single search, plus the targets the search is looking for.
+ * 
+ * A context is built once for a graph and reused by every query. Instead of clearing its arrays between
+ * queries, each query gets a new generation number and a vertex only counts as reached (or settled) if it
+ * was stamped with the current generation, so starting a query costs O(1) and only the vertexes a search
+ * actually touches are ever written.
+ * 
+ * A context must not be shared by concurrently running queries; create one per thread with
+ * {@link ShortestPathAlgorithm#createQueryContext()}.
+ * 
+ * @author mehmet
+ *
+ */
+public class QueryContext {
+
+	private final double[] distances;
+	private final int[] previous;
+	// distances and previous of a vertex are valid only if its stamp equals the current generation
+	private final int[] reachedStamps;
+	private final int[] settledStamps;
+	// a vertex is one of the targets of the query if its stamp equals the current generation
+	private final int[] targetStamps;
+	private int generation;
+	private int settledCount;
+	private long relaxedEdgeCount;
+	// targets not settled yet, -1 if the query searches the whole graph
+	private int remainingTargets;
+
+	private IndexedHeap heap;
+	// FIFO queue of label-correcting searches and the stamps of the queued vertexes, created on first use
+	private int[] queue;
+	private int[] queuedStamps;
+	// walk of the last negative cycle check which visited each vertex, numbered on across checks
+	private int[] walkStamps;
+	private int lastWalk;
+	private BucketQueue bucketQueue;
+	// buffers an algorithm keeps across the queries it runs with this context
+	private Object workspace;
+	private QueryContext backwardContext;
+	// generation of the last query which used the backward context
+	private int backwardGeneration;
+	// vertex where the forward and backward searches of a bidirectional query meet on the best path so far
+	private int meetingIndex;
+	private double meetingLength;
+
+	private int indexOfSource;
+	private int indexOfDestination;
+
+	public QueryContext(int vertexCount) {
+		distances = new double[vertexCount];
+		previous = new int[vertexCount];
+		reachedStamps = new int[vertexCount];
+		settledStamps = new int[vertexCount];
+		targetStamps = new int[vertexCount];
+	}
+
+	/**
+	 * Starts a new point to point query: every vertex becomes unreached and unsettled, and the search is
+	 * complete once the destination is settled.
+	 */
+	public void reset(int indexOfSource, int indexOfDestination) {
+		start(indexOfSource);
+		this.indexOfDestination = indexOfDestination;
+		targetStamps[indexOfDestination] = generation;
+		remainingTargets = 1;
+	}
+
+	/**
+	 * Starts a new one to many query which is complete once every given target is settled.
+	 * 
+	 * @param targetIndexes vertexes to find the distances to, null to search the whole graph.
+	 */
+	public void reset(int indexOfSource, int[] targetIndexes) {
+		start(indexOfSource);
+		this.indexOfDestination = -1;
+		if (targetIndexes == null) {
+			remainingTargets = -1;
+			return;
+		}
+		remainingTargets = 0;
+		for (int target : targetIndexes) {
+			if (targetStamps[target] != generation) {
+				targetStamps[target] = generation;
+				remainingTargets++;
+			}
+		}
+	}
+
+	private void start(int indexOfSource) {
+		generation++;
+		if (generation == Integer.MAX_VALUE) {
+			// stamps of ancient queries could collide with new generations once the counter wraps around
+			Arrays.fill(reachedStamps, 0);
+			Arrays.fill(settledStamps, 0);
+			Arrays.fill(targetStamps, 0);
+			if (queuedStamps != null) {
+				Arrays.fill(queuedStamps, 0);
+			}
+			generation = 1;
+		}
+		if (heap != null) {
+			heap.clear();
+		}
+		if (bucketQueue != null) {
+			bucketQueue.clear();
+		}
+		this.indexOfSource = indexOfSource;
+		settledCount = 0;
+		relaxedEdgeCount = 0;
+		meetingIndex = -1;
+		meetingLength = Double.MAX_VALUE;
+		update(indexOfSource, 0, -1);
+	}
+
+	public int getVertexCount() {
+		return distances.length;
+	}
+
+	public int getIndexOfSource() {
+		return indexOfSource;
+	}
+
+	/**
+	 * @return destination of a point to point query, -1 for one to many queries.
+	 */
+	public int getIndexOfDestination() {
+		return indexOfDestination;
+	}
+
+	/**
+	 * @return tentative distance of the vertex, Double.MAX_VALUE if the query has not reached it.
+	 */
+	public double getDistance(int index) {
+		return reachedStamps[index] == generation ? distances[index] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * @return index of the previous vertex on the shortest path found so far, -1 if there is none.
+	 */
+	public int getPrevious(int index) {
+		return reachedStamps[index] == generation ? previous[index] : -1;
+	}
+
+	public void update(int index, double distance, int previousIndex) {
+		distances[index] = distance;
+		previous[index] = previousIndex;
+		reachedStamps[index] = generation;
+	}
+
+	public boolean isSettled(int index) {
+		return settledStamps[index] == generation;
+	}
+
+	public void settle(int index) {
+		settledStamps[index] = generation;
+		settledCount++;
+		if (targetStamps[index] == generation) {
+			remainingTargets--;
+		}
+	}
+
+	/**
+	 * @return true once every target of the query has been settled, so a label-setting search can stop.
+	 */
+	public boolean isSearchComplete() {
+		return remainingTargets == 0;
+	}
+
+	/**
+	 * @return number of vertexes settled since the query started.
+	 */
+	public int getSettledCount() {
+		return settledCount;
+	}
+
+	/**
+	 * Counts edges looked at by the search, called once per scanned vertex rather than per edge.
+	 */
+	public void addRelaxedEdges(long count) {
+		relaxedEdgeCount += count;
+	}
+
+	/**
+	 * @return number of edges relaxed since the query started, by the backward search too if there is one.
+	 */
+	public long getRelaxedEdgeCount() {
+		return isBackwardContextUsed() ? relaxedEdgeCount + backwardContext.relaxedEdgeCount : relaxedEdgeCount;
+	}
+
+	/**
+	 * @return number of inserts, decreases and polls of the heaps and bucket queues since the query started,
+	 *         0 for searches without either.
+	 */
+	public long getHeapOperationCount() {
+		long count = heap == null ? 0 : heap.getOperationCount();
+		if (bucketQueue != null) {
+			count += bucketQueue.getOperationCount();
+		}
+		if (isBackwardContextUsed() && backwardContext.heap != null) {
+			count += backwardContext.heap.getOperationCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of vertexes settled since the query started, by the backward search too if there is one.
+	 */
+	public int getTotalSettledCount() {
+		return isBackwardContextUsed() ? settledCount + backwardContext.settledCount : settledCount;
+	}
+
+	/**
+	 * @return the heap of this context, created on first use and emptied whenever a query starts.
+	 */
+	public IndexedHeap getHeap() {
+		if (heap == null) {
+			heap = new IndexedHeap(distances.length);
+		}
+		return heap;
+	}
+
+	/**
+	 * @return an array of one slot per vertex for a circular FIFO queue, created on first use. Its content
+	 *         is left over from earlier queries, only the queued flags are reset when a query starts.
+	 */
+	public int[] getQueue() {
+		if (queue == null) {
+			queue = new int[distances.length];
+			queuedStamps = new int[distances.length];
+		}
+		return queue;
+	}
+
+	/**
+	 * @return true if the vertex was marked queued during the current query.
+	 */
+	public boolean isQueued(int index) {
+		return queuedStamps[index] == generation;
+	}
+
+	public void setQueued(int index, boolean queued) {
+		// generations start at 1, so 0 never matches
+		queuedStamps[index] = queued ? generation : 0;
+	}
+
+	/**
+	 * Reserves numbers for the walks of a negative cycle check, all higher than those of earlier checks, so
+	 * that the stamps left by earlier checks never need to be cleared.
+	 * 
+	 * @return the number before the first walk of the check, the stamps of earlier checks are at most this.
+	 */
+	public int startWalks(int walkCount) {
+		if (walkStamps == null) {
+			walkStamps = new int[distances.length];
+		}
+		if (lastWalk > Integer.MAX_VALUE - walkCount) {
+			Arrays.fill(walkStamps, 0);
+			lastWalk = 0;
+		}
+		int before = lastWalk;
+		lastWalk += walkCount;
+		return before;
+	}
+
+	/**
+	 * @return the walk stamps of the vertexes, see {@link #startWalks(int)}.
+	 */
+	public int[] getWalkStamps() {
+		return walkStamps;
+	}
+
+	/**
+	 * @return the bucket queue of this context for edge weights up to maxWeight, created on first use or
+	 *         when the largest weight changes, and emptied whenever a query starts.
+	 */
+	public BucketQueue getBucketQueue(int maxWeight) {
+		if (bucketQueue == null || bucketQueue.getMaxWeight() != maxWeight) {
+			bucketQueue = BucketQueue.create(distances.length, maxWeight);
+		}
+		return bucketQueue;
+	}
+
+	/**
+	 * @return what an algorithm left here with {@link #setWorkspace(Object)}, null if none did. Algorithms
+	 *         whose buffers do not fit the arrays of the context keep them here, so that they are allocated
+	 *         once per context rather than once per query. A context may be used with several algorithms,
+	 *         so each must check that the workspace is its own before using it.
+	 */
+	public Object getWorkspace() {
+		return workspace;
+	}
+
+	public void setWorkspace(Object workspace) {
+		this.workspace = workspace;
+	}
+
+	public int getMeetingIndex() {
+		return meetingIndex;
+	}
+
+	public double getMeetingLength() {
+		return meetingLength;
+	}
+
+	public void updateMeeting(int index, double length) {
+		meetingIndex = index;
+		meetingLength = length;
+	}
+
+	/**
+	 * @return a second workspace over the same vertexes for searches running backwards from the
+	 *         destination, created on first use.
+	 */
+	public QueryContext getBackwardContext() {
+		if (backwardContext == null) {
+			backwardContext = new QueryContext(distances.length);
+		}
+		backwardGeneration = generation;
+		return backwardContext;
+	}
+
+	private boolean isBackwardContextUsed() {
+		return backwardContext != null && backwardGeneration == generation;
+	}
+}
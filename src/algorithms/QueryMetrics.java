@@ -0,0 +1,126 @@
+package algorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the queries of one or more {@link ShortestPathAlgorithm}s cost: counters of the work done and
+ * histograms of the time spent initializing, searching and producing the result, in nanoseconds.
+ *
+ * Metrics are off until {@link ShortestPathAlgorithm#setMetrics(QueryMetrics)} is called. The searches
+ * always count their work in their {@link QueryContext}, which is a few plain increments per settled
+ * vertex, and only an algorithm with metrics reads the clock and adds the counts up here once per query.
+ * Several algorithms and threads may share one instance.
+ *
+ * @author mehmet
+ *
+ */
+public class QueryMetrics {
+
+	private final AtomicLong queryCount = new AtomicLong();
+	private final AtomicLong failedQueryCount = new AtomicLong();
+	private final AtomicLong settledCount = new AtomicLong();
+	private final AtomicLong relaxedEdgeCount = new AtomicLong();
+	private final AtomicLong heapOperationCount = new AtomicLong();
+
+	private final Histogram initializeNanos = new Histogram();
+	private final Histogram runNanos = new Histogram();
+	private final Histogram produceResultNanos = new Histogram();
+	private final Histogram queryNanos = new Histogram();
+	private final Histogram settledPerQuery = new Histogram();
+
+	/**
+	 * Adds a finished query.
+	 *
+	 * @param produceResult nanoseconds spent producing the result, 0 for queries which return distances only.
+	 */
+	void record(QueryContext context, long initialize, long run, long produceResult) {
+		queryCount.incrementAndGet();
+		int settled = context.getTotalSettledCount();
+		settledCount.addAndGet(settled);
+		relaxedEdgeCount.addAndGet(context.getRelaxedEdgeCount());
+		heapOperationCount.addAndGet(context.getHeapOperationCount());
+		initializeNanos.record(initialize);
+		runNanos.record(run);
+		produceResultNanos.record(produceResult);
+		queryNanos.record(initialize + run + produceResult);
+		settledPerQuery.record(settled);
+	}
+
+	/**
+	 * Adds a query which threw, e.g. on a negative cycle.
+	 */
+	void recordFailure() {
+		failedQueryCount.incrementAndGet();
+	}
+
+	/**
+	 * @return number of queries which returned, failed ones are not included.
+	 */
+	public long getQueryCount() {
+		return queryCount.get();
+	}
+
+	public long getFailedQueryCount() {
+		return failedQueryCount.get();
+	}
+
+	public long getSettledCount() {
+		return settledCount.get();
+	}
+
+	public long getRelaxedEdgeCount() {
+		return relaxedEdgeCount.get();
+	}
+
+	public long getHeapOperationCount() {
+		return heapOperationCount.get();
+	}
+
+	public Histogram getInitializeNanos() {
+		return initializeNanos;
+	}
+
+	public Histogram getRunNanos() {
+		return runNanos;
+	}
+
+	public Histogram getProduceResultNanos() {
+		return produceResultNanos;
+	}
+
+	/**
+	 * @return time of whole queries, the sum of the three phases.
+	 */
+	public Histogram getQueryNanos() {
+		return queryNanos;
+	}
+
+	public Histogram getSettledPerQuery() {
+		return settledPerQuery;
+	}
+
+	public void reset() {
+		queryCount.set(0);
+		failedQueryCount.set(0);
+		settledCount.set(0);
+		relaxedEdgeCount.set(0);
+		heapOperationCount.set(0);
+		initializeNanos.reset();
+		runNanos.reset();
+		produceResultNanos.reset();
+		queryNanos.reset();
+		settledPerQuery.reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%d queries, %d failed, %d settled, %d edges relaxed, %d heap operations", getQueryCount(), getFailedQueryCount(),
+				getSettledCount(), getRelaxedEdgeCount(), getHeapOperationCount()));
+		builder.append("\ninitialize ns: ").append(initializeNanos);
+		builder.append("\nrun ns: ").append(runNanos);
+		builder.append("\nproduce result ns: ").append(produceResultNanos);
+		builder.append("\nquery ns: ").append(queryNanos);
+		return builder.toString();
+	}
+}
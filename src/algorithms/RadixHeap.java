@@ -0,0 +1,50 @@
+package algorithms;
+
+/**
+ * Radix heap: bucket 0 holds the keys equal to the key polled last and bucket i > 0 the keys whose
+ * highest bit differing from it is bit i - 1, so 65 buckets cover every long key. Polling from an empty
+ * bucket 0 takes the smallest key of the first non-empty bucket as the new last key and moves that
+ * bucket's vertexes down, each to a strictly lower bucket. A vertex therefore moves at most
+ * log2(maxWeight) + 1 times, and a search costs O(E + V log maxWeight).
+ *
+ * @author mehmet
+ *
+ */
+public class RadixHeap extends BucketQueue {
+
+	private static final int BUCKET_COUNT = 65;
+
+	public RadixHeap(int capacity, int maxWeight) {
+		super(capacity, BUCKET_COUNT, maxWeight);
+	}
+
+	@Override
+	protected int bucketOf(long key) {
+		return 64 - Long.numberOfLeadingZeros(key ^ lastKey);
+	}
+
+	@Override
+	protected int findSmallestBucket() {
+		if (heads[0] >= 0) {
+			return 0;
+		}
+		int bucket = 1;
+		while (heads[bucket] < 0) {
+			bucket++;
+		}
+		long smallestKey = Long.MAX_VALUE;
+		for (int vertex = heads[bucket]; vertex >= 0; vertex = nextInBucket(vertex)) {
+			smallestKey = Math.min(smallestKey, keys[vertex]);
+		}
+		lastKey = smallestKey;
+		// the whole list leaves the bucket, so the vertexes are linked elsewhere without unlinking each
+		int vertex = heads[bucket];
+		heads[bucket] = -1;
+		while (vertex >= 0) {
+			int following = nextInBucket(vertex);
+			link(vertex, bucketOf(keys[vertex]));
+			vertex = following;
+		}
+		return 0;
+	}
+}
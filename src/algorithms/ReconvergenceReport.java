@@ -0,0 +1,51 @@
+package algorithms;
+
+/**
+ * What it took a distance vector network to converge again: the rounds of the exchange, the distance vector
+ * updates sent between nodes and the wall time.
+ * 
+ * @author mehmet
+ *
+ */
+public class ReconvergenceReport {
+
+	private final int rounds;
+	private final long messages;
+	private final long wallTimeNanos;
+
+	/**
+	 * @param rounds rounds of the exchange, -1 if the nodes do not run in rounds.
+	 */
+	public ReconvergenceReport(int rounds, long messages, long wallTimeNanos) {
+		this.rounds = rounds;
+		this.messages = messages;
+		this.wallTimeNanos = wallTimeNanos;
+	}
+
+	/**
+	 * @return rounds of the exchange, -1 if the nodes do not run in rounds.
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return number of distance vector updates delivered to nodes.
+	 */
+	public long getMessages() {
+		return messages;
+	}
+
+	public long getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+
+	@Override
+	public String toString() {
+		String time = String.format("%.3f ms", wallTimeNanos / 1e6);
+		if (rounds < 0) {
+			return String.format("Converged after %d messages in %s", messages, time);
+		}
+		return String.format("Converged after %d rounds and %d messages in %s", rounds, messages, time);
+	}
+}
@@ -1,27 +1,32 @@
 package algorithms;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
-
-import model.Edge;
+import model.CompressedGraph;
 import model.Graph;
 import model.Vertex;
 
 public class ShortestPathAlgorithm {
 
 	protected Graph graph;
-	protected Vertex[] unvisited;
-	protected Vertex[] previous;
-	protected double[] distances;
-	protected int vertexCount;
-	protected Map<String, Double> edgeCostsMap;
-	protected int indexOfSource;
-	protected int indexOfDestination;
+	// Built once per algorithm instance, every relaxation reads the neighbours and weights from here.
+	protected CompressedGraph compressedGraph;
+	// Workspace of the queries that do not bring their own context.
+	protected QueryContext context;
+	// null while metrics are off
+	private volatile QueryMetrics metrics;
 
 	public ShortestPathAlgorithm(Graph graph) {
 		this.graph = graph;
+		this.compressedGraph = new CompressedGraph(graph);
+		this.context = createQueryContext();
+	}
+
+	/**
+	 * For a graph which exists only in compressed form, such as one mapped from a {@link model.GraphFile}.
+	 * Vertexes passed to the queries are then only looked up by their ids.
+	 */
+	public ShortestPathAlgorithm(CompressedGraph compressedGraph) {
+		this.compressedGraph = compressedGraph;
+		this.context = createQueryContext();
 	}
 	
 	/**
@@ -30,45 +35,155 @@ public class ShortestPathAlgorithm {
 	 * @param destination vertex
 	 * @throws Exception Dijkstra implementation does not throw exception. But the Bellman-Ford implementation does.
 	 */
-	public void findShortestPathBetween(Vertex source, Vertex destination) throws Exception {
-		initialize(source, destination);
-	
-		runTheAlgorithm();
-	
-		produceResult(source, destination);
+	public ShortestPathResult findShortestPathBetween(Vertex source, Vertex destination) throws Exception {
+		return findShortestPathBetween(context, source, destination);
 	}
 
-	protected void produceResult(Vertex source, Vertex destination) {
-		//Extracting path from the previous array which holds the vertex visited previously from each vertex and has the smallest path length up to there.
-		Stack<Vertex> vertexesVisited = new Stack<Vertex>();
-		int previousIndex = indexOfDestination;
-		while (previous[previousIndex] != null) {
-			vertexesVisited.push(previous[previousIndex]);
-			previousIndex = findVertexIndex(previous[previousIndex]);
+	/**
+	 * Same as {@link #findShortestPathBetween(Vertex, Vertex)} but keeps the state of the query in the given
+	 * context, which is reset rather than reallocated.
+	 * 
+	 * The algorithm itself is not modified by a query, so several threads may run queries at the same time
+	 * as long as each uses its own context. See {@link BatchShortestPathQuery}.
+	 */
+	public ShortestPathResult findShortestPathBetween(QueryContext context, Vertex source, Vertex destination) throws Exception {
+		QueryMetrics metrics = this.metrics;
+		if (metrics == null) {
+			initialize(context, source, destination);
+
+			runTheAlgorithm(context);
+
+			return produceResult(context);
 		}
-	
-		double shortestPathLength = distances[indexOfDestination];
+
+		try {
+			long start = System.nanoTime();
+			initialize(context, source, destination);
+			long initialized = System.nanoTime();
+			runTheAlgorithm(context);
+			long ran = System.nanoTime();
+			ShortestPathResult result = produceResult(context);
+			metrics.record(context, initialized - start, ran - initialized, System.nanoTime() - ran);
+			return result;
+		} catch (Exception e) {
+			metrics.recordFailure();
+			throw e;
+		}
+	}
+
+	/**
+	 * Single source, all targets: one search from the source over the whole graph.
+	 * 
+	 * @return distance from the source to every vertex in the order of {@link Graph#getVertexes()},
+	 *         Double.MAX_VALUE for unreachable vertexes.
+	 */
+	public double[] findDistancesFrom(Vertex source) throws Exception {
+		findDistances(context, findVertexIndexOrFail(source), null);
+		double[] result = new double[compressedGraph.getVertexCount()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = context.getDistance(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Many to many: one search per source, each stopping as soon as all the targets are settled, instead of
+	 * one search per source/target pair.
+	 */
+	public DistanceMatrix findDistanceMatrix(Vertex[] sources, Vertex[] targets) throws Exception {
+		DistanceMatrix matrix = new DistanceMatrix(sources.length, targets.length);
+		int[] targetIndexes = findVertexIndexes(targets);
+		for (int row = 0; row < sources.length; row++) {
+			fillDistanceMatrixRow(context, matrix, row, findVertexIndexOrFail(sources[row]), targetIndexes);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Runs a single search from the source which stops once all the targets are settled. The distances
+	 * are left in the context.
+	 * 
+	 * @param targetIndexes vertexes to find the distances to, null to search the whole graph.
+	 */
+	public void findDistances(QueryContext context, int indexOfSource, int[] targetIndexes) throws Exception {
+		QueryMetrics metrics = this.metrics;
+		if (metrics == null) {
+			context.reset(indexOfSource, targetIndexes);
+
+			runTheAlgorithm(context);
+			return;
+		}
+
+		try {
+			long start = System.nanoTime();
+			context.reset(indexOfSource, targetIndexes);
+			long initialized = System.nanoTime();
+			runTheAlgorithm(context);
+			metrics.record(context, initialized - start, System.nanoTime() - initialized, 0);
+		} catch (Exception e) {
+			metrics.recordFailure();
+			throw e;
+		}
+	}
+
+	void fillDistanceMatrixRow(QueryContext context, DistanceMatrix matrix, int row, int indexOfSource, int[] targetIndexes) throws Exception {
+		findDistances(context, indexOfSource, targetIndexes);
+		for (int column = 0; column < targetIndexes.length; column++) {
+			matrix.set(row, column, context.getDistance(targetIndexes[column]));
+		}
+	}
+
+	/**
+	 * Starts adding the cost of every query to the given metrics, which may be shared with other
+	 * algorithms, or stops it with null.
+	 */
+	public void setMetrics(QueryMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return metrics the queries are added to, null while metrics are off.
+	 */
+	public QueryMetrics getMetrics() {
+		return metrics;
+	}
+
+	public QueryContext createQueryContext() {
+		return new QueryContext(compressedGraph.getVertexCount());
+	}
+
+	public CompressedGraph getCompressedGraph() {
+		return compressedGraph;
+	}
+
+	protected ShortestPathResult produceResult(QueryContext context) {
+		int indexOfDestination = context.getIndexOfDestination();
+		int sourceId = compressedGraph.getId(context.getIndexOfSource());
+		int destinationId = compressedGraph.getId(indexOfDestination);
+
+		double shortestPathLength = context.getDistance(indexOfDestination);
 		if (shortestPathLength == Double.MAX_VALUE) {
-			System.out.println(String.format("There is no path between %d and %d", source.getId(), destination.getId()));
-		} else {
-			System.out.println(String.format("Shortest path length from %d to %d is %f", source.getId(), destination.getId(), shortestPathLength));
-	
-			String path = "";
-			while (vertexesVisited.size() > 0) {
-				Vertex vertex = vertexesVisited.pop();
-				path += String.format("%d-", vertex.getId());
-			}
-			path += destination.getId();
-			System.out.println("Path: " + path);
+			return ShortestPathResult.unreachable(sourceId, destinationId, context.getSettledCount());
+		}
+
+		//Extracting path from the previous array which holds the vertex visited previously from each vertex and has the smallest path length up to there.
+		int pathLength = 1;
+		for (int index = context.getPrevious(indexOfDestination); index != -1; index = context.getPrevious(index)) {
+			pathLength++;
 		}
+		int[] path = new int[pathLength];
+		for (int index = indexOfDestination; index != -1; index = context.getPrevious(index)) {
+			path[--pathLength] = compressedGraph.getId(index);
+		}
+		return new ShortestPathResult(sourceId, destinationId, shortestPathLength, path, context.getSettledCount());
 	}
 
-	protected void runTheAlgorithm() {
+	protected void runTheAlgorithm(QueryContext context) throws Exception {
+			int vertexCount = compressedGraph.getVertexCount();
 			int removedCount = 0;
 			while (removedCount < vertexCount) {
-				int index = findVertexWithMinDistance(distances, unvisited);
-				Vertex vertex = unvisited[index];
-				unvisited[index] = null;
+				int index = findVertexWithMinDistance(context);
+				context.settle(index);
 				removedCount++;
 	
 				//TODO we may terminate the algorithm here since the shortest path to destination is found.
@@ -76,75 +191,61 @@ public class ShortestPathAlgorithm {
 	//				break;
 	//			}
 	
-				if (vertex.getNeighbours() != null && vertex.getNeighbours().length > 0) {
-					for (Vertex neighbour : vertex.getNeighbours()) {
-						int neighbourIndex = findVertexIndex(neighbour);
-						double alt = distances[index] + edgeCostsMap.get(String.format("%d-%d", vertex.getId(), neighbour.getId()));
-						if (alt < distances[neighbourIndex]) {
-							distances[neighbourIndex] = alt;
-							//Where did we come here that short? Hold the vertexes providing the shortest path in previous array.
-							previous[neighbourIndex] = vertex;
-						}
-					}
-				}
+				relaxOutgoingEdges(context, index);
 			}
 		}
 
-	protected void initialize(Vertex source, Vertex destination) {
-		vertexCount = graph.getVertexes().length;
-	
-		unvisited = Arrays.copyOf(graph.getVertexes(), vertexCount);
-		previous = new Vertex[vertexCount];
-		distances = new double[vertexCount];
-	
-		indexOfSource = 0;
-		indexOfDestination = 0;
-		for (int i = 0; i < vertexCount; i++) {
-			if (source.equals(unvisited[i])) {
-				indexOfSource = i;
-			} else if (destination.equals(unvisited[i])) {
-				indexOfDestination = i;
-			}
-		}
-	
-		previous[indexOfSource] = null;
-		distances[indexOfSource] = 0;
-		for (int i = 0; i < vertexCount; i++) {
-			if (i != indexOfSource) {
-				distances[i] = Double.MAX_VALUE;
-				previous[i] = null;
+	/**
+	 * Relaxes every outgoing edge of the vertex at the given index. Neighbours and weights come straight
+	 * from the compressed graph, so a relaxation costs no lookup and no allocation.
+	 */
+	protected void relaxOutgoingEdges(QueryContext context, int index) {
+		double distance = context.getDistance(index);
+		context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+		for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+			int neighbourIndex = compressedGraph.getTarget(edge);
+			double alt = distance + compressedGraph.getWeight(edge);
+			if (alt < context.getDistance(neighbourIndex)) {
+				//Where did we come here that short? Hold the vertexes providing the shortest path in previous array.
+				context.update(neighbourIndex, alt, index);
 			}
 		}
-	
-		edgeCostsMap = generateEdgeCostMap();
+	}
+
+	protected void initialize(QueryContext context, Vertex source, Vertex destination) {
+		context.reset(findVertexIndexOrFail(source), findVertexIndexOrFail(destination));
 	}
 
 	protected int findVertexIndex(Vertex vertex) {
-		for (int i = 0; i < graph.getVertexes().length; i++) {
-			if (graph.getVertexes()[i].equals(vertex))
-				return i;
+		return compressedGraph.getIndex(vertex);
+	}
+
+	protected int findVertexIndexOrFail(Vertex vertex) {
+		int index = findVertexIndex(vertex);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Vertex %d is not in the graph.", vertex.getId()));
+		}
+		return index;
+	}
+
+	protected int[] findVertexIndexes(Vertex[] vertexes) {
+		int[] indexes = new int[vertexes.length];
+		for (int i = 0; i < vertexes.length; i++) {
+			indexes[i] = findVertexIndexOrFail(vertexes[i]);
 		}
-		return -1;
+		return indexes;
 	}
 
-	protected int findVertexWithMinDistance(double[] distances, Vertex[] vertexes) {
+	protected int findVertexWithMinDistance(QueryContext context) {
 		int smallestIndex = 0;
 		double smallestValue = Double.MAX_VALUE;
-		for (int i = 0; i < distances.length; i++) {
-			if (distances[i] <= smallestValue && vertexes[i] != null) {
-				smallestValue = distances[i];
+		for (int i = 0; i < context.getVertexCount(); i++) {
+			if (!context.isSettled(i) && context.getDistance(i) <= smallestValue) {
+				smallestValue = context.getDistance(i);
 				smallestIndex = i;
 			}
 		}
 		return smallestIndex;
 	}
 
-	private Map<String, Double> generateEdgeCostMap() {
-		Map<String, Double> result = new HashMap<String, Double>();
-		for (Edge edge : graph.getEdges()) {
-			result.put(String.format("%d-%d", edge.getSource().getId(), edge.getDestination().getId()), edge.getWeight());
-		}
-		return result;
-	}
-
-}
\ No newline at end of file
+}
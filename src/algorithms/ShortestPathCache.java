@@ -0,0 +1,248 @@
+package algorithms;
+
+import model.DynamicGraph;
+import model.Graph;
+import model.GraphChangeListener;
+import model.Vertex;
+
+/**
+ * Answers repeated queries from memory instead of searching again. Results are cached per
+ * source/destination pair, and whole shortest path trees per source for sources asked about many
+ * destinations, both with a bounded number of entries evicted least recently or least frequently used.
+ *
+ * The cache is either put in front of an algorithm on a graph which does not change, or follows a
+ * {@link DynamicGraph}. In the latter case each change drops only the entries it may have made wrong:
+ * <ul>
+ * <li>An edge which gets heavier, or is removed, only lengthens the paths which use it, so results whose
+ * path has the edge and trees which have it as a tree edge are dropped.</li>
+ * <li>An edge which gets lighter, or is added, may shorten any path longer than its new weight, since
+ * weights are not negative. Trees are checked exactly, the edge must shorten the path to its target.</li>
+ * </ul>
+ * The algorithm itself is built again from a snapshot of the graph at the first miss after a change.
+ *
+ * All methods are synchronized, so the cache may be shared by several threads.
+ *
+ * @author mehmet
+ *
+ */
+public class ShortestPathCache implements GraphChangeListener {
+
+	public enum EvictionPolicy {
+		// evicts the entry used longest ago
+		LRU,
+		// evicts the entry used the fewest times, the least recently used of those on a tie
+		LFU
+	}
+
+	/**
+	 * Creates the algorithm behind the cache for a snapshot of a {@link DynamicGraph}.
+	 */
+	public interface AlgorithmFactory {
+		ShortestPathAlgorithm create(Graph graph);
+	}
+
+	// null unless the cache follows a dynamic graph
+	private final DynamicGraph dynamicGraph;
+	private final AlgorithmFactory factory;
+	// null if the graph has changed since it was built
+	private ShortestPathAlgorithm algorithm;
+
+	private final BoundedCache<Long, ShortestPathResult> results;
+	private final BoundedCache<Integer, ShortestPathTree> trees;
+
+	private long hitCount;
+	private long missCount;
+	private long invalidationCount;
+
+	/**
+	 * @param maxResults number of source/destination pairs to keep.
+	 * @param maxTrees number of shortest path trees to keep, each of them costs 12 bytes per vertex.
+	 */
+	public ShortestPathCache(ShortestPathAlgorithm algorithm, int maxResults, int maxTrees, EvictionPolicy policy) {
+		this.dynamicGraph = null;
+		this.factory = null;
+		this.algorithm = algorithm;
+		this.results = new BoundedCache<Long, ShortestPathResult>(maxResults, policy);
+		this.trees = new BoundedCache<Integer, ShortestPathTree>(maxTrees, policy);
+	}
+
+	/**
+	 * Follows the changes of the graph until {@link #detach()} is called.
+	 */
+	public ShortestPathCache(DynamicGraph graph, AlgorithmFactory factory, int maxResults, int maxTrees, EvictionPolicy policy) {
+		this.dynamicGraph = graph;
+		this.factory = factory;
+		this.results = new BoundedCache<Long, ShortestPathResult>(maxResults, policy);
+		this.trees = new BoundedCache<Integer, ShortestPathTree>(maxTrees, policy);
+		graph.addListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the graph.
+	 */
+	public void detach() {
+		if (dynamicGraph != null) {
+			dynamicGraph.removeListener(this);
+		}
+	}
+
+	/**
+	 * Looks the pair up first, then the tree of the source, and runs the algorithm only if neither is
+	 * cached. The result found is cached for the pair.
+	 */
+	public synchronized ShortestPathResult findShortestPathBetween(Vertex source, Vertex destination) throws Exception {
+		Long key = key(source.getId(), destination.getId());
+		ShortestPathResult result = results.get(key);
+		if (result != null) {
+			hitCount++;
+			return result;
+		}
+		ShortestPathTree tree = trees.get(source.getId());
+		if (tree != null) {
+			hitCount++;
+			return tree.findShortestPathTo(destination.getId());
+		}
+		missCount++;
+		result = getAlgorithm().findShortestPathBetween(source, destination);
+		results.put(key, result);
+		return result;
+	}
+
+	/**
+	 * @return shortest paths from the source to every vertex, from the cache if they are there. Queries from
+	 *         the source are answered from the tree while it is cached.
+	 */
+	public synchronized ShortestPathTree findShortestPathTree(Vertex source) throws Exception {
+		ShortestPathTree tree = trees.get(source.getId());
+		if (tree != null) {
+			hitCount++;
+			return tree;
+		}
+		missCount++;
+		ShortestPathAlgorithm current = getAlgorithm();
+		current.findDistances(current.context, current.findVertexIndexOrFail(source), null);
+		tree = new ShortestPathTree(current.getCompressedGraph(), current.context);
+		trees.put(source.getId(), tree);
+		return tree;
+	}
+
+	/**
+	 * Drops every cached result and tree, e.g. after the graph of an algorithm was changed behind its back.
+	 */
+	public synchronized void invalidateAll() {
+		invalidationCount += results.size() + trees.size();
+		results.clear();
+		trees.clear();
+	}
+
+	@Override
+	public synchronized void edgeAdded(int sourceIndex, int targetIndex, double weight) {
+		edgeShortened(dynamicGraph.getId(sourceIndex), dynamicGraph.getId(targetIndex), weight);
+	}
+
+	@Override
+	public synchronized void edgeRemoved(int sourceIndex, int targetIndex, double weight) {
+		edgeLengthened(dynamicGraph.getId(sourceIndex), dynamicGraph.getId(targetIndex));
+	}
+
+	@Override
+	public synchronized void weightChanged(int sourceIndex, int targetIndex, double oldWeight, double newWeight) {
+		if (newWeight < oldWeight) {
+			edgeShortened(dynamicGraph.getId(sourceIndex), dynamicGraph.getId(targetIndex), newWeight);
+		} else if (newWeight > oldWeight) {
+			edgeLengthened(dynamicGraph.getId(sourceIndex), dynamicGraph.getId(targetIndex));
+		}
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return share of the queries answered from the cache, 0 before the first query.
+	 */
+	public synchronized double getHitRate() {
+		long total = hitCount + missCount;
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * @return number of entries dropped to make room for new ones.
+	 */
+	public synchronized long getEvictionCount() {
+		return results.getEvictionCount() + trees.getEvictionCount();
+	}
+
+	/**
+	 * @return number of entries dropped because the graph changed.
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	public synchronized int getResultCount() {
+		return results.size();
+	}
+
+	public synchronized int getTreeCount() {
+		return trees.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d hits, %d misses, %d evictions, %d invalidations", hitCount, missCount, getEvictionCount(), invalidationCount);
+	}
+
+	private ShortestPathAlgorithm getAlgorithm() {
+		if (algorithm == null) {
+			algorithm = factory.create(dynamicGraph.toGraph());
+		}
+		return algorithm;
+	}
+
+	private void edgeShortened(final int sourceId, final int targetId, final double weight) {
+		algorithm = null;
+		invalidationCount += results.removeIf(new BoundedCache.Condition<ShortestPathResult>() {
+			@Override
+			public boolean holds(ShortestPathResult result) {
+				return result.getCost() > weight;
+			}
+		});
+		invalidationCount += trees.removeIf(new BoundedCache.Condition<ShortestPathTree>() {
+			@Override
+			public boolean holds(ShortestPathTree tree) {
+				return tree.isShortenedBy(sourceId, targetId, weight);
+			}
+		});
+	}
+
+	private void edgeLengthened(final int sourceId, final int targetId) {
+		algorithm = null;
+		invalidationCount += results.removeIf(new BoundedCache.Condition<ShortestPathResult>() {
+			@Override
+			public boolean holds(ShortestPathResult result) {
+				int[] path = result.getPath();
+				for (int i = 1; i < path.length; i++) {
+					if (path[i - 1] == sourceId && path[i] == targetId) {
+						return true;
+					}
+				}
+				return false;
+			}
+		});
+		invalidationCount += trees.removeIf(new BoundedCache.Condition<ShortestPathTree>() {
+			@Override
+			public boolean holds(ShortestPathTree tree) {
+				return tree.hasTreeEdge(sourceId, targetId);
+			}
+		});
+	}
+
+	private static Long key(int sourceId, int destinationId) {
+		return ((long) sourceId << 32) | (destinationId & 0xffffffffL);
+	}
+}
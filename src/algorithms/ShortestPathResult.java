@@ -0,0 +1,85 @@
+package algorithms;
+
+/**
+ * Outcome of a single shortest path query: the cost, the vertex ids along the path and how many vertexes
+ * the search settled to get there.
+ * 
+ * Nothing is formatted while the query runs; {@link #toString()} renders the result only when a caller
+ * asks for it.
+ * 
+ * @author mehmet
+ *
+ */
+public class ShortestPathResult {
+
+	private static final int[] NO_PATH = new int[0];
+
+	private final int sourceId;
+	private final int destinationId;
+	private final double cost;
+	private final int[] path;
+	private final int settledCount;
+
+	/**
+	 * @param path ids of the vertexes from source to destination, both included.
+	 * @param settledCount number of vertexes settled by the search, -1 if the algorithm does not track it.
+	 */
+	public ShortestPathResult(int sourceId, int destinationId, double cost, int[] path, int settledCount) {
+		this.sourceId = sourceId;
+		this.destinationId = destinationId;
+		this.cost = cost;
+		this.path = path;
+		this.settledCount = settledCount;
+	}
+
+	public static ShortestPathResult unreachable(int sourceId, int destinationId, int settledCount) {
+		return new ShortestPathResult(sourceId, destinationId, Double.MAX_VALUE, NO_PATH, settledCount);
+	}
+
+	public int getSourceId() {
+		return sourceId;
+	}
+
+	public int getDestinationId() {
+		return destinationId;
+	}
+
+	/**
+	 * @return length of the shortest path, Double.MAX_VALUE if the destination is unreachable.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return ids of the vertexes on the path from source to destination, empty if the destination is unreachable.
+	 */
+	public int[] getPath() {
+		return path;
+	}
+
+	public boolean isReachable() {
+		return cost != Double.MAX_VALUE;
+	}
+
+	public int getSettledCount() {
+		return settledCount;
+	}
+
+	@Override
+	public String toString() {
+		if (!isReachable()) {
+			return String.format("There is no path between %d and %d", sourceId, destinationId);
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Shortest path length from %d to %d is %f", sourceId, destinationId, cost));
+		builder.append("\nPath: ");
+		for (int i = 0; i < path.length; i++) {
+			if (i > 0) {
+				builder.append('-');
+			}
+			builder.append(path[i]);
+		}
+		return builder.toString();
+	}
+}
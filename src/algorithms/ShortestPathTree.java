@@ -0,0 +1,85 @@
+package algorithms;
+
+import model.CompressedGraph;
+
+/**
+ * Distances and parents of a search from one source over the whole graph, kept after the search so that
+ * the path to any destination is read off in time proportional to its length.
+ *
+ * @author mehmet
+ *
+ */
+public class ShortestPathTree {
+
+	private final CompressedGraph graph;
+	private final int indexOfSource;
+	private final double[] distances;
+	private final int[] previous;
+	private final int settledCount;
+
+	/**
+	 * Copies the tree out of a context which has just searched the whole graph.
+	 */
+	ShortestPathTree(CompressedGraph graph, QueryContext context) {
+		this.graph = graph;
+		this.indexOfSource = context.getIndexOfSource();
+		int vertexCount = graph.getVertexCount();
+		distances = new double[vertexCount];
+		previous = new int[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			distances[i] = context.getDistance(i);
+			previous[i] = context.getPrevious(i);
+		}
+		settledCount = context.getSettledCount();
+	}
+
+	public int getSourceId() {
+		return graph.getId(indexOfSource);
+	}
+
+	/**
+	 * @return length of the shortest path to the vertex, Double.MAX_VALUE if it is unreachable or not in the graph.
+	 */
+	public double getDistance(int id) {
+		int index = graph.getIndex(id);
+		return index < 0 ? Double.MAX_VALUE : distances[index];
+	}
+
+	public ShortestPathResult findShortestPathTo(int destinationId) {
+		int indexOfDestination = graph.getIndex(destinationId);
+		if (indexOfDestination < 0) {
+			throw new IllegalArgumentException(String.format("Vertex %d is not in the graph.", destinationId));
+		}
+		int sourceId = getSourceId();
+		if (distances[indexOfDestination] == Double.MAX_VALUE) {
+			return ShortestPathResult.unreachable(sourceId, destinationId, settledCount);
+		}
+		int pathLength = 1;
+		for (int index = previous[indexOfDestination]; index != -1; index = previous[index]) {
+			pathLength++;
+		}
+		int[] path = new int[pathLength];
+		for (int index = indexOfDestination; index != -1; index = previous[index]) {
+			path[--pathLength] = graph.getId(index);
+		}
+		return new ShortestPathResult(sourceId, destinationId, distances[indexOfDestination], path, settledCount);
+	}
+
+	/**
+	 * @return true if the tree reaches the target through the edge from the source of the edge.
+	 */
+	boolean hasTreeEdge(int sourceId, int targetId) {
+		int source = graph.getIndex(sourceId);
+		int target = graph.getIndex(targetId);
+		return source >= 0 && target >= 0 && previous[target] == source;
+	}
+
+	/**
+	 * @return true if an edge of the given weight would shorten the path to its target.
+	 */
+	boolean isShortenedBy(int sourceId, int targetId, double weight) {
+		int source = graph.getIndex(sourceId);
+		int target = graph.getIndex(targetId);
+		return source >= 0 && target >= 0 && distances[source] != Double.MAX_VALUE && distances[source] + weight < distances[target];
+	}
+}
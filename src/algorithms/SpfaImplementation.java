@@ -0,0 +1,73 @@
+package algorithms;
+
+import model.CompressedGraph;
+import model.Graph;
+
+/**
+ * Shortest Path Faster Algorithm: the queue-based variant of Bellman-Ford.
+ * 
+ * Instead of relaxing every edge in every round, only the edges of vertexes whose distance changed since
+ * they were last processed are relaxed, taking those vertexes from a FIFO queue. The worst case stays
+ * O(V * E) but typical graphs need far fewer relaxations.
+ * 
+ * A negative cycle would keep the queue from ever draining, so after every V relaxations the graph of
+ * previous vertexes is checked for a cycle. Such a cycle is always negative and one appears eventually
+ * whenever a negative cycle is reachable from the source.
+ * 
+ * @author mehmet
+ *
+ */
+public class SpfaImplementation extends BellmanFordImplementation {
+
+	public SpfaImplementation(Graph graph) {
+		super(graph);
+	}
+
+	public SpfaImplementation(CompressedGraph compressedGraph) {
+		super(compressedGraph);
+	}
+
+	@Override
+	protected void runTheAlgorithm(QueryContext context) throws Exception {
+		int vertexCount = compressedGraph.getVertexCount();
+		// circular FIFO queue, a vertex is in it at most once so it never holds more than vertexCount entries
+		int[] queue = context.getQueue();
+		int head = 0;
+		int size = 0;
+		int relaxationsUntilCheck = vertexCount;
+
+		queue[0] = context.getIndexOfSource();
+		context.setQueued(queue[0], true);
+		size = 1;
+		while (size > 0) {
+			int index = queue[head];
+			head = head + 1 == vertexCount ? 0 : head + 1;
+			size--;
+			context.setQueued(index, false);
+
+			double distance = context.getDistance(index);
+			context.addRelaxedEdges(compressedGraph.getEdgesEnd(index) - compressedGraph.getEdgesBegin(index));
+			for (int edge = compressedGraph.getEdgesBegin(index), end = compressedGraph.getEdgesEnd(index); edge < end; edge++) {
+				int neighbourIndex = compressedGraph.getTarget(edge);
+				double alt = distance + compressedGraph.getWeight(edge);
+				if (alt < context.getDistance(neighbourIndex)) {
+					context.update(neighbourIndex, alt, index);
+					if (!context.isQueued(neighbourIndex)) {
+						int tail = head + size < vertexCount ? head + size : head + size - vertexCount;
+						queue[tail] = neighbourIndex;
+						context.setQueued(neighbourIndex, true);
+						size++;
+					}
+
+					if (--relaxationsUntilCheck == 0) {
+						relaxationsUntilCheck = vertexCount;
+						int[] cycle = findCycle(context, neighbourIndex);
+						if (cycle != null) {
+							throw new NegativeCycleException(cycle);
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link Node} with its routing tables in primitive arrays indexed by the dense node indexes of a shared
+ * {@link NodeIndex}.
+ * 
+ * The distance vector is a double[], the first hops an int[] and the vectors received from the neighbours
+ * one double[] per neighbour, with Double.MAX_VALUE for unreachable nodes. Changed and affected
+ * destinations are bits. A {@link Node} spends a boxed key, a boxed value and a map entry on every
+ * destination of each of these tables, so this variant needs about an order of magnitude less memory.
+ * 
+ * @author mehmet
+ *
+ */
+public class CompactNode implements Router {
+
+	private final int id;
+	private final int index;
+	private final NodeIndex nodeIndex;
+
+	// links, neighbour k has index neighbourIndexes[k] and link cost linkCosts[k]
+	private int[] neighbourIndexes = new int[4];
+	private double[] linkCosts = new double[4];
+	private int neighbourCount;
+	private final Set<Integer> neighbourIds = new HashSet<Integer>();
+
+	private final double[] distanceVector;
+	// index of the neighbour to hop first for each destination, -1 if there is none
+	private final int[] firstHop;
+	// latest distance vector received from neighbour k, null until it advertises
+	private double[][] neighbourDistanceVectors = new double[4][];
+
+	// destinations whose cost changed since the distance vector was last advertised
+	private final BitSet changedDestinations;
+	// destinations for which a neighbour advertised a new cost since the algorithm last ran
+	private final BitSet affectedDestinations;
+	// first hop of each destination when it was last advertised, -1 if there was none
+	private final int[] advertisedFirstHops;
+
+	// costs at or above this are treated as unreachable, the network sets a finite bound
+	private double infinity = Double.MAX_VALUE;
+
+	public CompactNode(int id, NodeIndex nodeIndex) {
+		int index = nodeIndex.getIndex(id);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Node %d is not in the node index.", id));
+		}
+		this.id = id;
+		this.index = index;
+		this.nodeIndex = nodeIndex;
+		int nodeCount = nodeIndex.size();
+		distanceVector = new double[nodeCount];
+		firstHop = new int[nodeCount];
+		advertisedFirstHops = new int[nodeCount];
+		changedDestinations = new BitSet(nodeCount);
+		affectedDestinations = new BitSet(nodeCount);
+		Arrays.fill(distanceVector, Double.MAX_VALUE);
+		Arrays.fill(firstHop, -1);
+		Arrays.fill(advertisedFirstHops, -1);
+
+		// Distance to itself is zero.
+		distanceVector[index] = 0;
+		changedDestinations.set(index);
+	}
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void addNeighbour(Integer neighbourId, double distance) {
+		int index = indexOrFail(neighbourId);
+		if (neighbourCount == neighbourIndexes.length) {
+			neighbourIndexes = Arrays.copyOf(neighbourIndexes, neighbourCount * 2);
+			linkCosts = Arrays.copyOf(linkCosts, neighbourCount * 2);
+			neighbourDistanceVectors = Arrays.copyOf(neighbourDistanceVectors, neighbourCount * 2);
+		}
+		neighbourIndexes[neighbourCount] = index;
+		linkCosts[neighbourCount] = distance;
+		neighbourCount++;
+		neighbourIds.add(neighbourId);
+
+		distanceVector[index] = distance;
+		firstHop[index] = index;
+		changedDestinations.set(index);
+	}
+
+	/**
+	 * Changes the cost of the link to an existing neighbour. Every destination is recomputed by the next run
+	 * of the algorithm, costs may go up as well as down.
+	 */
+	@Override
+	public void setLinkCost(Integer neighbourId, double distance) {
+		int k = neighbourSlot(indexOrFail(neighbourId));
+		if (k >= 0) {
+			linkCosts[k] = distance;
+			affectedDestinations.set(0, distanceVector.length);
+		}
+	}
+
+	@Override
+	public double getLinkCost(Integer neighbourId) {
+		int k = neighbourSlot(indexOrFail(neighbourId));
+		return k >= 0 ? linkCosts[k] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Drops the link to the neighbour and the distance vector received from it. Every destination is
+	 * recomputed by the next run of the algorithm.
+	 */
+	@Override
+	public void removeNeighbour(Integer neighbourId) {
+		int k = neighbourSlot(indexOrFail(neighbourId));
+		if (k >= 0) {
+			// the last slot takes the place of the removed one
+			neighbourCount--;
+			neighbourIndexes[k] = neighbourIndexes[neighbourCount];
+			linkCosts[k] = linkCosts[neighbourCount];
+			neighbourDistanceVectors[k] = neighbourDistanceVectors[neighbourCount];
+			neighbourDistanceVectors[neighbourCount] = null;
+			neighbourIds.remove(neighbourId);
+			affectedDestinations.set(0, distanceVector.length);
+		}
+	}
+
+	@Override
+	public void setInfinity(double infinity) {
+		this.infinity = infinity;
+	}
+
+	/**
+	 * Nothing to do, the tables already have a slot for every node of the node index.
+	 */
+	@Override
+	public void setNonNeighbours(Set<Integer> set) {
+	}
+
+	@Override
+	public Set<Integer> getNeighbours() {
+		return Collections.unmodifiableSet(neighbourIds);
+	}
+
+	@Override
+	public double getCostToNode(Integer n) {
+		return distanceVector[indexOrFail(n)];
+	}
+
+	@Override
+	public Integer getFirstHopToDestination(Integer n) {
+		int hop = firstHop[indexOrFail(n)];
+		return hop >= 0 ? nodeIndex.getId(hop) : null;
+	}
+
+	@Override
+	public boolean runTheAlgorithm() {
+		boolean change = false;
+		for (int destination = affectedDestinations.nextSetBit(0); destination >= 0; destination = affectedDestinations.nextSetBit(destination + 1)) {
+			if (destination == index) {
+				continue;
+			}
+			double bestCost = Double.MAX_VALUE;
+			int bestHop = -1;
+			for (int k = 0; k < neighbourCount; k++) {
+				double cost;
+				if (neighbourIndexes[k] == destination) {
+					// a direct link is a candidate as well
+					cost = linkCosts[k];
+				} else if (neighbourDistanceVectors[k] != null && neighbourDistanceVectors[k][destination] != Double.MAX_VALUE) {
+					cost = linkCosts[k] + neighbourDistanceVectors[k][destination];
+				} else {
+					continue;
+				}
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestHop = neighbourIndexes[k];
+				}
+			}
+
+			if (bestCost >= infinity) {
+				bestCost = Double.MAX_VALUE;
+				bestHop = -1;
+			}
+
+			// higher costs replace lower ones too, and a new first hop at the same cost is advertised as well
+			if (bestCost != distanceVector[destination] || bestHop != firstHop[destination]) {
+				distanceVector[destination] = bestCost;
+				firstHop[destination] = bestHop;
+				changedDestinations.set(destination);
+				change = true;
+			}
+		}
+		affectedDestinations.clear();
+		return change;
+	}
+
+	@Override
+	public void receiveDistanceVector(Map<Integer, Double> distanceVector, Integer nodeId) {
+		double[] neighbourDistanceVector = neighbourDistanceVector(nodeId);
+		if (neighbourDistanceVector == null) {
+			return;
+		}
+		Arrays.fill(neighbourDistanceVector, Double.MAX_VALUE);
+		for (Map.Entry<Integer, Double> entry : distanceVector.entrySet()) {
+			int index = indexOrFail(entry.getKey());
+			neighbourDistanceVector[index] = entry.getValue();
+			affectedDestinations.set(index);
+		}
+	}
+
+	@Override
+	public void receiveDistanceVectorUpdate(DistanceVectorUpdate update) {
+		double[] neighbourDistanceVector = neighbourDistanceVector(update.getFromNode());
+		if (neighbourDistanceVector == null) {
+			return;
+		}
+		for (int i = 0; i < update.size(); i++) {
+			int index = indexOrFail(update.getDestination(i));
+			neighbourDistanceVector[index] = update.getCost(i);
+			affectedDestinations.set(index);
+		}
+	}
+
+	@Override
+	public DistanceVectorUpdate takeDistanceVectorUpdate() {
+		if (changedDestinations.isEmpty()) {
+			return null;
+		}
+		int[] destinations = new int[changedDestinations.cardinality()];
+		double[] costs = new double[destinations.length];
+		int[] firstHops = new int[destinations.length];
+		int[] previousFirstHops = new int[destinations.length];
+		int i = 0;
+		for (int destination = changedDestinations.nextSetBit(0); destination >= 0; destination = changedDestinations.nextSetBit(destination + 1)) {
+			destinations[i] = nodeIndex.getId(destination);
+			costs[i] = distanceVector[destination];
+			firstHops[i] = hopId(firstHop[destination]);
+			previousFirstHops[i] = hopId(advertisedFirstHops[destination]);
+			advertisedFirstHops[destination] = firstHop[destination];
+			i++;
+		}
+		changedDestinations.clear();
+		return new DistanceVectorUpdate(id, destinations, costs, firstHops, previousFirstHops);
+	}
+
+	/**
+	 * @return the vector held for the given neighbour, allocated on first use, or null if it is not a neighbour.
+	 */
+	private double[] neighbourDistanceVector(int neighbourId) {
+		int k = neighbourSlot(indexOrFail(neighbourId));
+		if (k < 0) {
+			return null;
+		}
+		if (neighbourDistanceVectors[k] == null) {
+			neighbourDistanceVectors[k] = new double[distanceVector.length];
+			Arrays.fill(neighbourDistanceVectors[k], Double.MAX_VALUE);
+		}
+		return neighbourDistanceVectors[k];
+	}
+
+	/**
+	 * @return slot of the neighbour with the given index, or -1 if there is no link to it.
+	 */
+	private int neighbourSlot(int neighbourIndex) {
+		for (int k = 0; k < neighbourCount; k++) {
+			if (neighbourIndexes[k] == neighbourIndex) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return id of the node at the given hop index, or the id of this node if there is no hop.
+	 */
+	private int hopId(int hop) {
+		return hop >= 0 ? nodeIndex.getId(hop) : id;
+	}
+
+	private int indexOrFail(int nodeId) {
+		int index = nodeIndex.getIndex(nodeId);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Node %d is not in the node index.", nodeId));
+		}
+		return index;
+	}
+}
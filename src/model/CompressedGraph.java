@@ -0,0 +1,379 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed sparse row (CSR) form of a {@link Graph}.
+ *
+ * Vertexes are mapped to dense indexes 0..n-1 in the order of {@link Graph#getVertexes()}. The outgoing
+ * edges of the vertex at index v are stored at positions [getEdgesBegin(v), getEdgesEnd(v)) of the targets
+ * and weights arrays, so iterating the neighbours of a vertex needs neither a lookup nor an allocation.
+ *
+ * The edges of the graph are the only source of topology and weights; {@link Vertex#getNeighbours()} is
+ * not consulted.
+ *
+ * Weights are stored in the narrowest of int, float and double that holds every one of them exactly, so
+ * integer travel times take half the memory of doubles. {@link #getWeight(int)} returns the same double
+ * whatever the storage, and the searches add the weights up in double, whose 53 bits of mantissa keep
+ * sums of int weights exact far beyond the range of int.
+ *
+ * Subclasses may keep the arrays elsewhere, such as {@link MappedCompressedGraph} does in a file, by
+ * overriding every accessor.
+ *
+ * @author mehmet
+ *
+ */
+public class CompressedGraph {
+
+	// index -> vertex id
+	private final int[] ids;
+	// vertex ids in ascending order and the index of each, used for id -> index lookups
+	private final int[] sortedIds;
+	private final int[] sortedIndexes;
+
+	// outgoing edges of vertex v are at offsets[v] .. offsets[v + 1] - 1
+	private final int[] offsets;
+	private final int[] targets;
+	// exactly one of the weight arrays is set, the one of weightType
+	private final WeightType weightType;
+	private final double[] weights;
+	private final float[] floatWeights;
+	private final int[] intWeights;
+	private final double minWeight;
+
+	// coordinates of each vertex, null unless every vertex has them
+	private final double[] xs;
+	private final double[] ys;
+
+	// same vertexes with every edge reversed, built on first use
+	private CompressedGraph reverse;
+
+	public CompressedGraph(Graph graph) {
+		Vertex[] vertexes = graph.getVertexes();
+		Edge[] edges = graph.getEdges() != null ? graph.getEdges() : new Edge[0];
+		int vertexCount = vertexes.length;
+
+		ids = new int[vertexCount];
+		boolean hasCoordinates = true;
+		for (int i = 0; i < vertexCount; i++) {
+			ids[i] = vertexes[i].getId();
+			hasCoordinates &= vertexes[i].hasCoordinates();
+		}
+		xs = hasCoordinates ? new double[vertexCount] : null;
+		ys = hasCoordinates ? new double[vertexCount] : null;
+		for (int i = 0; hasCoordinates && i < vertexCount; i++) {
+			xs[i] = vertexes[i].getX();
+			ys[i] = vertexes[i].getY();
+		}
+
+		sortedIds = new int[vertexCount];
+		sortedIndexes = new int[vertexCount];
+		sortIds();
+
+		int[] sources = new int[edges.length];
+		offsets = new int[vertexCount + 1];
+		for (int e = 0; e < edges.length; e++) {
+			sources[e] = indexOrFail(edges[e].getSource());
+			offsets[sources[e] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+
+		targets = new int[edges.length];
+		double[] edgeWeights = new double[edges.length];
+		double smallest = Double.MAX_VALUE;
+		int[] next = Arrays.copyOf(offsets, vertexCount);
+		for (int e = 0; e < edges.length; e++) {
+			int position = next[sources[e]]++;
+			targets[position] = indexOrFail(edges[e].getDestination());
+			edgeWeights[position] = edges[e].getWeight();
+			smallest = Math.min(smallest, edgeWeights[position]);
+		}
+		minWeight = smallest;
+		weightType = WeightType.of(edgeWeights);
+		this.weights = weightType == WeightType.DOUBLE ? edgeWeights : null;
+		this.floatWeights = weightType == WeightType.FLOAT ? toFloats(edgeWeights) : null;
+		this.intWeights = weightType == WeightType.INT ? toInts(edgeWeights) : null;
+	}
+
+	/**
+	 * From arrays already in compressed sparse row form, as {@link CompressedGraphBuilder} produces them.
+	 */
+	CompressedGraph(int[] ids, int[] offsets, int[] targets, double[] weights) {
+		this.ids = ids;
+		this.xs = null;
+		this.ys = null;
+		sortedIds = new int[ids.length];
+		sortedIndexes = new int[ids.length];
+		sortIds();
+		this.offsets = offsets;
+		this.targets = targets;
+		weightType = WeightType.of(weights);
+		this.weights = weightType == WeightType.DOUBLE ? weights : null;
+		this.floatWeights = weightType == WeightType.FLOAT ? toFloats(weights) : null;
+		this.intWeights = weightType == WeightType.INT ? toInts(weights) : null;
+		double smallest = Double.MAX_VALUE;
+		for (double weight : weights) {
+			smallest = Math.min(smallest, weight);
+		}
+		minWeight = smallest;
+	}
+
+	/**
+	 * For subclasses which keep the arrays elsewhere and override every accessor.
+	 */
+	protected CompressedGraph() {
+		ids = null;
+		sortedIds = null;
+		sortedIndexes = null;
+		xs = null;
+		ys = null;
+		offsets = null;
+		targets = null;
+		weightType = null;
+		weights = null;
+		floatWeights = null;
+		intWeights = null;
+		minWeight = 0;
+	}
+
+	private CompressedGraph(CompressedGraph graph, int[] offsets, int[] targets, double[] weights) {
+		if (graph.ids != null) {
+			this.ids = graph.ids;
+			this.sortedIds = graph.sortedIds;
+			this.sortedIndexes = graph.sortedIndexes;
+			this.xs = graph.xs;
+			this.ys = graph.ys;
+		} else {
+			// the vertexes of a subclass are copied through its accessors
+			int vertexCount = graph.getVertexCount();
+			this.ids = new int[vertexCount];
+			this.sortedIds = new int[vertexCount];
+			this.sortedIndexes = new int[vertexCount];
+			this.xs = graph.hasCoordinates() ? new double[vertexCount] : null;
+			this.ys = graph.hasCoordinates() ? new double[vertexCount] : null;
+			for (int i = 0; i < vertexCount; i++) {
+				ids[i] = graph.getId(i);
+				sortedIds[i] = graph.getSortedId(i);
+				sortedIndexes[i] = graph.getSortedIndex(i);
+				if (xs != null) {
+					xs[i] = graph.getX(i);
+					ys[i] = graph.getY(i);
+				}
+			}
+		}
+		this.offsets = offsets;
+		this.targets = targets;
+		// the same weights in another order, so the same type holds them
+		this.weightType = graph.getWeightType();
+		this.weights = weightType == WeightType.DOUBLE ? weights : null;
+		this.floatWeights = weightType == WeightType.FLOAT ? toFloats(weights) : null;
+		this.intWeights = weightType == WeightType.INT ? toInts(weights) : null;
+		this.minWeight = graph.getMinWeight();
+	}
+
+	/**
+	 * @return the graph with the same vertexes and indexes in which every edge points the other way, so
+	 *         the outgoing edges of a vertex there are its incoming edges here. Built once and cached.
+	 */
+	public synchronized CompressedGraph getReverse() {
+		if (reverse == null) {
+			int vertexCount = getVertexCount();
+			int edgeCount = getEdgeCount();
+			int[] reverseOffsets = new int[vertexCount + 1];
+			for (int e = 0; e < edgeCount; e++) {
+				reverseOffsets[getTarget(e) + 1]++;
+			}
+			for (int v = 0; v < vertexCount; v++) {
+				reverseOffsets[v + 1] += reverseOffsets[v];
+			}
+
+			int[] reverseTargets = new int[edgeCount];
+			double[] reverseWeights = new double[edgeCount];
+			int[] next = Arrays.copyOf(reverseOffsets, vertexCount);
+			for (int v = 0; v < vertexCount; v++) {
+				for (int e = getEdgesBegin(v), end = getEdgesEnd(v); e < end; e++) {
+					int position = next[getTarget(e)]++;
+					reverseTargets[position] = v;
+					reverseWeights[position] = getWeight(e);
+				}
+			}
+			reverse = new CompressedGraph(this, reverseOffsets, reverseTargets, reverseWeights);
+			reverse.reverse = this;
+		}
+		return reverse;
+	}
+
+	public int getVertexCount() {
+		return ids.length;
+	}
+
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @return dense index of the vertex with the given id, or -1 if the graph does not contain it.
+	 */
+	public int getIndex(int id) {
+		int position = Arrays.binarySearch(sortedIds, id);
+		return position >= 0 ? sortedIndexes[position] : -1;
+	}
+
+	public int getIndex(Vertex vertex) {
+		return getIndex(vertex.getId());
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * @return position of the first outgoing edge of the vertex at the given index.
+	 */
+	public int getEdgesBegin(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * @return position after the last outgoing edge of the vertex at the given index.
+	 */
+	public int getEdgesEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @return index of the vertex the edge at the given position points to.
+	 */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	public double getWeight(int edge) {
+		if (weights != null) {
+			return weights[edge];
+		}
+		if (intWeights != null) {
+			return intWeights[edge];
+		}
+		return floatWeights[edge];
+	}
+
+	/**
+	 * @return the weight of the edge as stored, only for graphs whose weight type is
+	 *         {@link WeightType#INT}. Searches adding these up must do so in long.
+	 */
+	public int getIntWeight(int edge) {
+		return intWeights[edge];
+	}
+
+	public WeightType getWeightType() {
+		return weightType;
+	}
+
+	/**
+	 * @return the smallest edge weight, Double.MAX_VALUE if there are no edges. Lets algorithms check the
+	 *         weights without reading all of them.
+	 */
+	public double getMinWeight() {
+		return minWeight;
+	}
+
+	/**
+	 * @return true if every vertex of the graph has coordinates.
+	 */
+	public boolean hasCoordinates() {
+		return xs != null;
+	}
+
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	/**
+	 * @return the id at the given position of the ids in ascending order.
+	 */
+	int getSortedId(int position) {
+		return sortedIds[position];
+	}
+
+	/**
+	 * @return index of the vertex at the given position of the ids in ascending order.
+	 */
+	int getSortedIndex(int position) {
+		return sortedIndexes[position];
+	}
+
+	private void sortIds() {
+		long[] pairs = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			// id in the high half keeps the order of ids, index in the low half travels along with it
+			pairs[i] = ((long) ids[i] << 32) | i;
+		}
+		Arrays.sort(pairs);
+		for (int i = 0; i < pairs.length; i++) {
+			sortedIds[i] = (int) (pairs[i] >> 32);
+			sortedIndexes[i] = (int) pairs[i];
+			if (i > 0 && sortedIds[i] == sortedIds[i - 1]) {
+				throw new IllegalArgumentException(String.format("Vertex %d appears more than once in the graph.", sortedIds[i]));
+			}
+		}
+	}
+
+	private static float[] toFloats(double[] weights) {
+		float[] floats = new float[weights.length];
+		for (int e = 0; e < weights.length; e++) {
+			floats[e] = (float) weights[e];
+		}
+		return floats;
+	}
+
+	private static int[] toInts(double[] weights) {
+		int[] ints = new int[weights.length];
+		for (int e = 0; e < weights.length; e++) {
+			ints[e] = (int) weights[e];
+		}
+		return ints;
+	}
+
+	private int indexOrFail(Vertex vertex) {
+		int index = getIndex(vertex);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Edge refers to vertex %d which is not in the graph.", vertex.getId()));
+		}
+		return index;
+	}
+
+	/**
+	 * How the edge weights are stored. {@link GraphFile} writes the ordinal, so new types go at the end.
+	 */
+	public enum WeightType {
+		DOUBLE,
+		// 4 bytes, values with at most 24 significant bits
+		FLOAT,
+		// 4 bytes, whole numbers in the range of int
+		INT;
+
+		/**
+		 * @return the narrowest type which holds every one of the weights exactly, -0.0 and NaN included.
+		 */
+		public static WeightType of(double[] weights) {
+			WeightType type = INT;
+			for (double weight : weights) {
+				long bits = Double.doubleToLongBits(weight);
+				if (type == INT && Double.doubleToLongBits((int) weight) != bits) {
+					type = FLOAT;
+				}
+				if (type == FLOAT && Double.doubleToLongBits((float) weight) != bits) {
+					return DOUBLE;
+				}
+			}
+			return type;
+		}
+	}
+}
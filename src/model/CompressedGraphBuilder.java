@@ -0,0 +1,211 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Collects the edges of a graph in primitive arrays and turns them into a {@link CompressedGraph}, without
+ * a {@link Vertex} or an {@link Edge} object for any of them. Vertexes are the ids given to
+ * {@link #addVertex(int)} together with every id an edge refers to, and get their indexes in ascending
+ * order of ids.
+ *
+ * Ids are mapped to indexes through a lookup table when they are dense enough, as in DIMACS files where
+ * they run from 1 to n, and by sorting them otherwise.
+ *
+ * @author mehmet
+ *
+ */
+public class CompressedGraphBuilder {
+
+	private int[] vertexIds = new int[16];
+	private int vertexCount;
+
+	private int[] sources;
+	private int[] targets;
+	private double[] weights;
+	private int edgeCount;
+
+	public CompressedGraphBuilder() {
+		this(16);
+	}
+
+	public CompressedGraphBuilder(int expectedEdgeCount) {
+		int capacity = Math.max(16, expectedEdgeCount);
+		sources = new int[capacity];
+		targets = new int[capacity];
+		weights = new double[capacity];
+	}
+
+	/**
+	 * Adds a vertex which may have no edges. Adding one twice, or one an edge refers to, is harmless.
+	 */
+	public void addVertex(int id) {
+		if (vertexCount == vertexIds.length) {
+			vertexIds = Arrays.copyOf(vertexIds, vertexCount * 2);
+		}
+		vertexIds[vertexCount++] = id;
+	}
+
+	public void addEdge(int sourceId, int targetId, double weight) {
+		if (edgeCount == sources.length) {
+			grow(edgeCount + 1);
+		}
+		sources[edgeCount] = sourceId;
+		targets[edgeCount] = targetId;
+		weights[edgeCount] = weight;
+		edgeCount++;
+	}
+
+	/**
+	 * Appends the vertexes and edges of the other builder, which is left as it was.
+	 */
+	public void addAll(CompressedGraphBuilder other) {
+		if (edgeCount + other.edgeCount > sources.length) {
+			grow(edgeCount + other.edgeCount);
+		}
+		System.arraycopy(other.sources, 0, sources, edgeCount, other.edgeCount);
+		System.arraycopy(other.targets, 0, targets, edgeCount, other.edgeCount);
+		System.arraycopy(other.weights, 0, weights, edgeCount, other.edgeCount);
+		edgeCount += other.edgeCount;
+		for (int i = 0; i < other.vertexCount; i++) {
+			addVertex(other.vertexIds[i]);
+		}
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	public CompressedGraph build() {
+		IdMapping mapping = createIdMapping();
+		int[] ids = mapping.ids();
+		int count = ids.length;
+
+		int[] offsets = new int[count + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			offsets[mapping.index(sources[e]) + 1]++;
+		}
+		for (int v = 0; v < count; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] edgeTargets = new int[edgeCount];
+		double[] edgeWeights = new double[edgeCount];
+		int[] next = Arrays.copyOf(offsets, count);
+		for (int e = 0; e < edgeCount; e++) {
+			int position = next[mapping.index(sources[e])]++;
+			edgeTargets[position] = mapping.index(targets[e]);
+			edgeWeights[position] = weights[e];
+		}
+		return new CompressedGraph(ids, offsets, edgeTargets, edgeWeights);
+	}
+
+	private IdMapping createIdMapping() {
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int e = 0; e < edgeCount; e++) {
+			min = Math.min(min, Math.min(sources[e], targets[e]));
+			max = Math.max(max, Math.max(sources[e], targets[e]));
+		}
+		for (int i = 0; i < vertexCount; i++) {
+			min = Math.min(min, vertexIds[i]);
+			max = Math.max(max, vertexIds[i]);
+		}
+		if (min > max) {
+			return new SortedIdMapping(new int[0]);
+		}
+
+		// a table over the id range costs no more than sorting every id would
+		long range = max - min + 1;
+		if (range <= 2L * edgeCount + vertexCount + 1024) {
+			return new TableIdMapping((int) min, (int) range);
+		}
+
+		int[] all = new int[2 * edgeCount + vertexCount];
+		System.arraycopy(sources, 0, all, 0, edgeCount);
+		System.arraycopy(targets, 0, all, edgeCount, edgeCount);
+		System.arraycopy(vertexIds, 0, all, 2 * edgeCount, vertexCount);
+		Arrays.sort(all);
+		int unique = 0;
+		for (int i = 0; i < all.length; i++) {
+			if (i == 0 || all[i] != all[i - 1]) {
+				all[unique++] = all[i];
+			}
+		}
+		return new SortedIdMapping(Arrays.copyOf(all, unique));
+	}
+
+	private void grow(int minimumCapacity) {
+		int capacity = Math.max(minimumCapacity, sources.length * 2);
+		sources = Arrays.copyOf(sources, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+	}
+
+	private interface IdMapping {
+
+		/**
+		 * @return every id in ascending order, the position of an id is its index.
+		 */
+		int[] ids();
+
+		int index(int id);
+	}
+
+	private class TableIdMapping implements IdMapping {
+
+		private final int min;
+		// index of id min + i, -1 if no vertex has that id
+		private final int[] indexes;
+		private final int[] ids;
+
+		TableIdMapping(int min, int range) {
+			this.min = min;
+			indexes = new int[range];
+			for (int e = 0; e < edgeCount; e++) {
+				indexes[sources[e] - min] = 1;
+				indexes[targets[e] - min] = 1;
+			}
+			for (int i = 0; i < vertexCount; i++) {
+				indexes[vertexIds[i] - min] = 1;
+			}
+			int count = 0;
+			for (int i = 0; i < range; i++) {
+				indexes[i] = indexes[i] == 1 ? count++ : -1;
+			}
+			ids = new int[count];
+			for (int i = 0; i < range; i++) {
+				if (indexes[i] >= 0) {
+					ids[indexes[i]] = min + i;
+				}
+			}
+		}
+
+		@Override
+		public int[] ids() {
+			return ids;
+		}
+
+		@Override
+		public int index(int id) {
+			return indexes[id - min];
+		}
+	}
+
+	private static class SortedIdMapping implements IdMapping {
+
+		private final int[] ids;
+
+		SortedIdMapping(int[] ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public int[] ids() {
+			return ids;
+		}
+
+		@Override
+		public int index(int id) {
+			return Arrays.binarySearch(ids, id);
+		}
+	}
+}
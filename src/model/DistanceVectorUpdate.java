@@ -0,0 +1,75 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Entries of a node's distance vector which changed since the node last advertised it. Only these are
+ * sent to the neighbours instead of the whole vector.
+ * 
+ * Each entry also carries the neighbour the sender now forwards to for that destination and the one it
+ * forwarded to when it last advertised the entry, so that split horizon and poison reverse can be applied
+ * per neighbour without asking the sender again. A node that has no first hop for a destination uses its
+ * own id instead.
+ * 
+ * @author mehmet
+ *
+ */
+public class DistanceVectorUpdate {
+
+	private final int fromNode;
+	private final int[] destinations;
+	private final double[] costs;
+	private final int[] firstHops;
+	private final int[] previousFirstHops;
+
+	/**
+	 * An update that carries no first hops, as if the sender had none for any of the destinations.
+	 */
+	public DistanceVectorUpdate(int fromNode, int[] destinations, double[] costs) {
+		this(fromNode, destinations, costs, noHops(fromNode, destinations.length), noHops(fromNode, destinations.length));
+	}
+
+	/**
+	 * @param destinations ids of the nodes whose cost changed.
+	 * @param costs new cost to each destination, Double.MAX_VALUE if it became unreachable.
+	 * @param firstHops neighbour the sender forwards to for each destination.
+	 * @param previousFirstHops neighbour the sender forwarded to when it last advertised each destination.
+	 */
+	public DistanceVectorUpdate(int fromNode, int[] destinations, double[] costs, int[] firstHops, int[] previousFirstHops) {
+		this.fromNode = fromNode;
+		this.destinations = destinations;
+		this.costs = costs;
+		this.firstHops = firstHops;
+		this.previousFirstHops = previousFirstHops;
+	}
+
+	public int getFromNode() {
+		return fromNode;
+	}
+
+	public int size() {
+		return destinations.length;
+	}
+
+	public int getDestination(int i) {
+		return destinations[i];
+	}
+
+	public double getCost(int i) {
+		return costs[i];
+	}
+
+	public int getFirstHop(int i) {
+		return firstHops[i];
+	}
+
+	public int getPreviousFirstHop(int i) {
+		return previousFirstHops[i];
+	}
+
+	private static int[] noHops(int fromNode, int length) {
+		int[] hops = new int[length];
+		Arrays.fill(hops, fromNode);
+		return hops;
+	}
+}
@@ -0,0 +1,279 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A graph whose edges can be added, removed and reweighted in place, for example from a feed of traffic
+ * updates. The vertexes are fixed when it is created.
+ * 
+ * Vertexes have the dense indexes of a {@link NodeIndex}, in ascending order of their ids. Each vertex
+ * keeps its outgoing and its incoming edges in primitive arrays which grow as needed, so a change costs a
+ * scan of the edges of its two endpoints and allocates nothing in the common case. There is at most one
+ * edge from a vertex to another and weights must not be negative. {@link GraphChangeListener}s are told
+ * about every change, which is how a {@code DynamicShortestPathTree} stays up to date.
+ * 
+ * @author mehmet
+ *
+ */
+public class DynamicGraph {
+
+	private final NodeIndex index;
+	private final Vertex[] vertexes;
+
+	// outgoing edges of vertex v go to outTargets[v][0 .. outDegrees[v] - 1]
+	private final int[][] outTargets;
+	private final double[][] outWeights;
+	private final int[] outDegrees;
+	// incoming edges of vertex v come from inSources[v][0 .. inDegrees[v] - 1]
+	private final int[][] inSources;
+	private final double[][] inWeights;
+	private final int[] inDegrees;
+	private int edgeCount;
+
+	private final List<GraphChangeListener> listeners = new ArrayList<GraphChangeListener>();
+
+	/**
+	 * Copies the vertexes and edges of the graph. Of parallel edges only the lightest is kept.
+	 */
+	public DynamicGraph(Graph graph) {
+		Vertex[] graphVertexes = graph.getVertexes();
+		int[] ids = new int[graphVertexes.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = graphVertexes[i].getId();
+		}
+		index = new NodeIndex(ids);
+
+		int vertexCount = ids.length;
+		vertexes = new Vertex[vertexCount];
+		for (Vertex vertex : graphVertexes) {
+			vertexes[index.getIndex(vertex.getId())] = vertex;
+		}
+		outTargets = new int[vertexCount][];
+		outWeights = new double[vertexCount][];
+		outDegrees = new int[vertexCount];
+		inSources = new int[vertexCount][];
+		inWeights = new double[vertexCount][];
+		inDegrees = new int[vertexCount];
+
+		if (graph.getEdges() != null) {
+			for (Edge edge : graph.getEdges()) {
+				int source = indexOrFail(edge.getSource().getId());
+				int target = indexOrFail(edge.getDestination().getId());
+				checkWeight(edge.getWeight());
+				int position = find(outTargets[source], outDegrees[source], target);
+				if (position < 0) {
+					insert(source, target, edge.getWeight());
+				} else if (edge.getWeight() < outWeights[source][position]) {
+					setWeight(source, position, target, edge.getWeight());
+				}
+			}
+		}
+	}
+
+	public void addListener(GraphChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(GraphChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the edge exists already.
+	 */
+	public void addEdge(int sourceId, int targetId, double weight) {
+		int source = indexOrFail(sourceId);
+		int target = indexOrFail(targetId);
+		checkWeight(weight);
+		if (find(outTargets[source], outDegrees[source], target) >= 0) {
+			throw new IllegalArgumentException(String.format("Edge from %d to %d exists already.", sourceId, targetId));
+		}
+		insert(source, target, weight);
+		for (GraphChangeListener listener : listeners) {
+			listener.edgeAdded(source, target, weight);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there is no such edge.
+	 */
+	public void removeEdge(int sourceId, int targetId) {
+		int source = indexOrFail(sourceId);
+		int target = indexOrFail(targetId);
+		int position = edgeOrFail(source, target);
+		double weight = outWeights[source][position];
+
+		int last = --outDegrees[source];
+		outTargets[source][position] = outTargets[source][last];
+		outWeights[source][position] = outWeights[source][last];
+		int inPosition = find(inSources[target], inDegrees[target], source);
+		last = --inDegrees[target];
+		inSources[target][inPosition] = inSources[target][last];
+		inWeights[target][inPosition] = inWeights[target][last];
+		edgeCount--;
+
+		for (GraphChangeListener listener : listeners) {
+			listener.edgeRemoved(source, target, weight);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there is no such edge.
+	 */
+	public void updateWeight(int sourceId, int targetId, double weight) {
+		int source = indexOrFail(sourceId);
+		int target = indexOrFail(targetId);
+		checkWeight(weight);
+		int position = edgeOrFail(source, target);
+		double oldWeight = outWeights[source][position];
+		if (oldWeight == weight) {
+			return;
+		}
+		setWeight(source, position, target, weight);
+		for (GraphChangeListener listener : listeners) {
+			listener.weightChanged(source, target, oldWeight, weight);
+		}
+	}
+
+	public boolean hasEdge(int sourceId, int targetId) {
+		int source = index.getIndex(sourceId);
+		int target = index.getIndex(targetId);
+		return source >= 0 && target >= 0 && find(outTargets[source], outDegrees[source], target) >= 0;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there is no such edge.
+	 */
+	public double getWeight(int sourceId, int targetId) {
+		int source = indexOrFail(sourceId);
+		return outWeights[source][edgeOrFail(source, indexOrFail(targetId))];
+	}
+
+	public int getVertexCount() {
+		return vertexes.length;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @return dense index of the vertex with the given id, or -1 if the graph does not contain it.
+	 */
+	public int getIndex(int id) {
+		return index.getIndex(id);
+	}
+
+	public int getId(int index) {
+		return this.index.getId(index);
+	}
+
+	public Vertex getVertex(int index) {
+		return vertexes[index];
+	}
+
+	public int getOutDegree(int index) {
+		return outDegrees[index];
+	}
+
+	/**
+	 * @return index of the vertex the k-th outgoing edge of the vertex points to.
+	 */
+	public int getOutTarget(int index, int k) {
+		return outTargets[index][k];
+	}
+
+	public double getOutWeight(int index, int k) {
+		return outWeights[index][k];
+	}
+
+	public int getInDegree(int index) {
+		return inDegrees[index];
+	}
+
+	/**
+	 * @return index of the vertex the k-th incoming edge of the vertex comes from.
+	 */
+	public int getInSource(int index, int k) {
+		return inSources[index][k];
+	}
+
+	public double getInWeight(int index, int k) {
+		return inWeights[index][k];
+	}
+
+	/**
+	 * @return a snapshot of the current edges as a {@link Graph}, with the vertexes in ascending order of
+	 *         their ids, for the algorithms which work on static graphs.
+	 */
+	public Graph toGraph() {
+		Edge[] edges = new Edge[edgeCount];
+		int e = 0;
+		for (int v = 0; v < vertexes.length; v++) {
+			for (int k = 0; k < outDegrees[v]; k++) {
+				edges[e++] = new Edge(vertexes[v], vertexes[outTargets[v][k]], outWeights[v][k]);
+			}
+		}
+		return new Graph(Arrays.copyOf(vertexes, vertexes.length), edges);
+	}
+
+	private void insert(int source, int target, double weight) {
+		if (outTargets[source] == null || outDegrees[source] == outTargets[source].length) {
+			int capacity = outTargets[source] == null ? 4 : outDegrees[source] * 2;
+			outTargets[source] = outTargets[source] == null ? new int[capacity] : Arrays.copyOf(outTargets[source], capacity);
+			outWeights[source] = outWeights[source] == null ? new double[capacity] : Arrays.copyOf(outWeights[source], capacity);
+		}
+		outTargets[source][outDegrees[source]] = target;
+		outWeights[source][outDegrees[source]++] = weight;
+
+		if (inSources[target] == null || inDegrees[target] == inSources[target].length) {
+			int capacity = inSources[target] == null ? 4 : inDegrees[target] * 2;
+			inSources[target] = inSources[target] == null ? new int[capacity] : Arrays.copyOf(inSources[target], capacity);
+			inWeights[target] = inWeights[target] == null ? new double[capacity] : Arrays.copyOf(inWeights[target], capacity);
+		}
+		inSources[target][inDegrees[target]] = source;
+		inWeights[target][inDegrees[target]++] = weight;
+		edgeCount++;
+	}
+
+	private void setWeight(int source, int position, int target, double weight) {
+		outWeights[source][position] = weight;
+		inWeights[target][find(inSources[target], inDegrees[target], source)] = weight;
+	}
+
+	/**
+	 * @return position of the value among the first count values of the array, -1 if it is not there.
+	 */
+	private static int find(int[] values, int count, int value) {
+		for (int k = 0; k < count; k++) {
+			if (values[k] == value) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	private int edgeOrFail(int source, int target) {
+		int position = find(outTargets[source], outDegrees[source], target);
+		if (position < 0) {
+			throw new IllegalArgumentException(String.format("There is no edge from %d to %d.", getId(source), getId(target)));
+		}
+		return position;
+	}
+
+	private int indexOrFail(int id) {
+		int index = this.index.getIndex(id);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("Vertex %d is not in the graph.", id));
+		}
+		return index;
+	}
+
+	private static void checkWeight(double weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException(String.format("Negative edge weight %f is not supported.", weight));
+		}
+	}
+}
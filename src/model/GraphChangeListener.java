@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * Told about every change of a {@link DynamicGraph} right after it is made. Vertexes are given by their
+ * dense indexes in the graph.
+ * 
+ * @author mehmet
+ *
+ */
+public interface GraphChangeListener {
+
+	void edgeAdded(int sourceIndex, int targetIndex, double weight);
+
+	void edgeRemoved(int sourceIndex, int targetIndex, double weight);
+
+	void weightChanged(int sourceIndex, int targetIndex, double oldWeight, double newWeight);
+}
@@ -0,0 +1,299 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary file format of a {@link CompressedGraph}, written once and then mapped into memory by any number
+ * of processes instead of building the graph from {@link Vertex} and {@link Edge} objects again.
+ *
+ * Layout, little endian, every section starting at a multiple of 8 bytes:
+ *
+ * <pre>
+ * header         int magic, int version, int flags, int weight type, long vertex count, long edge count,
+ *                double smallest weight
+ * ids            int[vertex count]      id of each index
+ * sorted ids     int[vertex count]      ids in ascending order
+ * sorted indexes int[vertex count]      index of each of the sorted ids
+ * offsets        int[vertex count + 1]  CSR offsets
+ * targets        int[edge count]
+ * weights        double[edge count], float[edge count] or int[edge count] as the weight type says
+ * xs, ys         double[vertex count]   if flags has COORDINATES
+ * reverse        offsets, targets and weights of the reversed graph, if flags has REVERSE
+ * </pre>
+ *
+ * The weight type is the ordinal of {@link CompressedGraph.WeightType}: 0 for double, 1 for float and 2
+ * for int. Files written before narrower weights were stored have 0 there and read as doubles.
+ *
+ * A single mapping cannot be larger than 2 GB, so each section is mapped on its own, which allows graphs
+ * of up to about 268 million edges.
+ *
+ * @author mehmet
+ *
+ */
+public class GraphFile {
+
+	// "SPGF"
+	private static final int MAGIC = 0x53504746;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 40;
+
+	public static final int COORDINATES = 1;
+	public static final int REVERSE = 2;
+
+	private GraphFile() {
+	}
+
+	/**
+	 * Writes the graph, with its reversed graph if asked to, so that algorithms searching backwards do
+	 * not have to build it after mapping.
+	 */
+	public static void write(CompressedGraph graph, File file, boolean withReverse) throws IOException {
+		int vertexCount = graph.getVertexCount();
+		int edgeCount = graph.getEdgeCount();
+		int flags = (graph.hasCoordinates() ? COORDINATES : 0) | (withReverse ? REVERSE : 0);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(0);
+			Writer writer = new Writer(randomAccessFile.getChannel());
+			writer.putInt(MAGIC);
+			writer.putInt(VERSION);
+			writer.putInt(flags);
+			writer.putInt(graph.getWeightType().ordinal());
+			writer.putLong(vertexCount);
+			writer.putLong(edgeCount);
+			writer.putDouble(graph.getMinWeight());
+
+			for (int i = 0; i < vertexCount; i++) {
+				writer.putInt(graph.getId(i));
+			}
+			writer.align();
+			for (int i = 0; i < vertexCount; i++) {
+				writer.putInt(graph.getSortedId(i));
+			}
+			writer.align();
+			for (int i = 0; i < vertexCount; i++) {
+				writer.putInt(graph.getSortedIndex(i));
+			}
+			writer.align();
+			writeEdges(writer, graph);
+			if (graph.hasCoordinates()) {
+				for (int i = 0; i < vertexCount; i++) {
+					writer.putDouble(graph.getX(i));
+				}
+				for (int i = 0; i < vertexCount; i++) {
+					writer.putDouble(graph.getY(i));
+				}
+			}
+			if (withReverse) {
+				writeEdges(writer, graph.getReverse());
+			}
+			writer.flush();
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Maps a file written by {@link #write} into memory. Nothing but the header is read here.
+	 *
+	 * @throws IOException if the file is not a graph file or is truncated.
+	 */
+	public static MappedCompressedGraph map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(String.format("%s is not a graph file.", file));
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(String.format("%s is not a graph file.", file));
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(String.format("%s has unsupported version %d.", file, header.getInt(4)));
+			}
+			int flags = header.getInt(8);
+			int weightTypeCode = header.getInt(12);
+			if (weightTypeCode < 0 || weightTypeCode >= CompressedGraph.WeightType.values().length) {
+				throw new IOException(String.format("%s has unsupported weight type %d.", file, weightTypeCode));
+			}
+			CompressedGraph.WeightType weightType = CompressedGraph.WeightType.values()[weightTypeCode];
+			int vertexCount = (int) header.getLong(16);
+			int edgeCount = (int) header.getLong(24);
+			double minWeight = header.getDouble(32);
+
+			Reader reader = new Reader(channel, HEADER_SIZE);
+			IntBuffer ids = reader.ints(vertexCount);
+			IntBuffer sortedIds = reader.ints(vertexCount);
+			IntBuffer sortedIndexes = reader.ints(vertexCount);
+			IntBuffer offsets = reader.ints(vertexCount + 1);
+			IntBuffer targets = reader.ints(edgeCount);
+			Buffer weights = reader.weights(weightType, edgeCount);
+			DoubleBuffer xs = null;
+			DoubleBuffer ys = null;
+			if ((flags & COORDINATES) != 0) {
+				xs = reader.doubles(vertexCount);
+				ys = reader.doubles(vertexCount);
+			}
+			MappedCompressedGraph graph = new MappedCompressedGraph(vertexCount, edgeCount, minWeight, ids, sortedIds, sortedIndexes, offsets, targets,
+					weightType, weights, xs, ys);
+			if ((flags & REVERSE) != 0) {
+				new MappedCompressedGraph(graph, reader.ints(vertexCount + 1), reader.ints(edgeCount), reader.weights(weightType, edgeCount));
+			}
+			return graph;
+		} finally {
+			// the mappings stay valid after the channel is closed
+			randomAccessFile.close();
+		}
+	}
+
+	private static void writeEdges(Writer writer, CompressedGraph graph) throws IOException {
+		int vertexCount = graph.getVertexCount();
+		int edgeCount = graph.getEdgeCount();
+		for (int i = 0; i < vertexCount; i++) {
+			writer.putInt(graph.getEdgesBegin(i));
+		}
+		writer.putInt(vertexCount > 0 ? graph.getEdgesEnd(vertexCount - 1) : 0);
+		writer.align();
+		for (int e = 0; e < edgeCount; e++) {
+			writer.putInt(graph.getTarget(e));
+		}
+		writer.align();
+		if (graph.getWeightType() == CompressedGraph.WeightType.INT) {
+			for (int e = 0; e < edgeCount; e++) {
+				writer.putInt(graph.getIntWeight(e));
+			}
+			writer.align();
+		} else if (graph.getWeightType() == CompressedGraph.WeightType.FLOAT) {
+			for (int e = 0; e < edgeCount; e++) {
+				writer.putFloat((float) graph.getWeight(e));
+			}
+			writer.align();
+		} else {
+			for (int e = 0; e < edgeCount; e++) {
+				writer.putDouble(graph.getWeight(e));
+			}
+		}
+	}
+
+	/**
+	 * Buffers the values and writes them to the channel in large blocks.
+	 */
+	private static class Writer {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private long position;
+
+		Writer(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putInt(int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		void putLong(long value) throws IOException {
+			if (buffer.remaining() < 8) {
+				flush();
+			}
+			buffer.putLong(value);
+			position += 8;
+		}
+
+		void putFloat(float value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			buffer.putFloat(value);
+			position += 4;
+		}
+
+		void putDouble(double value) throws IOException {
+			if (buffer.remaining() < 8) {
+				flush();
+			}
+			buffer.putDouble(value);
+			position += 8;
+		}
+
+		/**
+		 * Pads to the next multiple of 8 bytes.
+		 */
+		void align() throws IOException {
+			if (position % 8 != 0) {
+				putInt(0);
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Maps the sections one after the other.
+	 */
+	private static class Reader {
+
+		private final FileChannel channel;
+		private long position;
+
+		Reader(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		IntBuffer ints(int count) throws IOException {
+			ByteBuffer section = map(count * 4L);
+			// the next section starts at a multiple of 8 bytes
+			position += position % 8;
+			return section.asIntBuffer();
+		}
+
+		DoubleBuffer doubles(int count) throws IOException {
+			return map(count * 8L).asDoubleBuffer();
+		}
+
+		Buffer weights(CompressedGraph.WeightType weightType, int count) throws IOException {
+			if (weightType == CompressedGraph.WeightType.INT) {
+				return ints(count);
+			}
+			if (weightType == CompressedGraph.WeightType.FLOAT) {
+				ByteBuffer section = map(count * 4L);
+				position += position % 8;
+				return section.asFloatBuffer();
+			}
+			return doubles(count);
+		}
+
+		private ByteBuffer map(long size) throws IOException {
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Graph section is too large to be mapped.");
+			}
+			if (position + size > channel.size()) {
+				throw new IOException("Graph file is truncated.");
+			}
+			ByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+			position += size;
+			return section;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic graphs of any size for benchmarks and experiments. Vertex ids are 0..n-1 and weights are
+ * drawn uniformly from the given range. The same seed always gives the same graph.
+ *
+ * @author mehmet
+ *
+ */
+public class GraphGenerator {
+
+	private GraphGenerator() {
+	}
+
+	/**
+	 * Erdős–Rényi G(n, m): m distinct directed edges between random pairs of different vertexes.
+	 */
+	public static Graph random(int vertexCount, int edgeCount, double minWeight, double maxWeight, long seed) {
+		if ((long) vertexCount * (vertexCount - 1) < edgeCount) {
+			throw new IllegalArgumentException(String.format("%d vertexes cannot have %d distinct edges.", vertexCount, edgeCount));
+		}
+		Random random = new Random(seed);
+		Vertex[] vertexes = createVertexes(vertexCount);
+		Edge[] edges = new Edge[edgeCount];
+		Set<Long> pairs = new HashSet<Long>();
+		int e = 0;
+		while (e < edgeCount) {
+			int source = random.nextInt(vertexCount);
+			int target = random.nextInt(vertexCount);
+			if (source != target && pairs.add((long) source * vertexCount + target)) {
+				edges[e++] = new Edge(vertexes[source], vertexes[target], weight(random, minWeight, maxWeight));
+			}
+		}
+		return new Graph(vertexes, edges);
+	}
+
+	/**
+	 * Road like network: a rows x columns grid with unit spacing coordinates, each vertex linked to its
+	 * four neighbours by a pair of opposite edges of the same weight. Weights of at least 1 keep the grid
+	 * distance a valid lower bound for {@code EuclideanHeuristic}.
+	 */
+	public static Graph grid(int rows, int columns, double minWeight, double maxWeight, long seed) {
+		Random random = new Random(seed);
+		Vertex[] vertexes = createVertexes(rows * columns);
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				vertexes[row * columns + column].setCoordinates(column, row);
+			}
+		}
+		int edgeCount = 2 * (rows * (columns - 1) + (rows - 1) * columns);
+		Edge[] edges = new Edge[Math.max(0, edgeCount)];
+		int e = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				Vertex vertex = vertexes[row * columns + column];
+				if (column + 1 < columns) {
+					e = link(edges, e, vertex, vertexes[row * columns + column + 1], weight(random, minWeight, maxWeight));
+				}
+				if (row + 1 < rows) {
+					e = link(edges, e, vertex, vertexes[(row + 1) * columns + column], weight(random, minWeight, maxWeight));
+				}
+			}
+		}
+		return new Graph(vertexes, edges);
+	}
+
+	/**
+	 * Barabási–Albert preferential attachment: every new vertex links to the given number of distinct
+	 * earlier vertexes chosen with probability proportional to their degree, in both directions. Degrees
+	 * follow a power law, a few hubs are linked to a large share of the graph.
+	 */
+	public static Graph scaleFree(int vertexCount, int edgesPerVertex, double minWeight, double maxWeight, long seed) {
+		if (edgesPerVertex < 1 || vertexCount <= edgesPerVertex) {
+			throw new IllegalArgumentException("Need more vertexes than edges per vertex, and at least one edge per vertex.");
+		}
+		Random random = new Random(seed);
+		Vertex[] vertexes = createVertexes(vertexCount);
+		// the first edgesPerVertex + 1 vertexes form a clique, every later one adds edgesPerVertex links
+		int linkCount = edgesPerVertex * (edgesPerVertex + 1) / 2 + (vertexCount - edgesPerVertex - 1) * edgesPerVertex;
+		Edge[] edges = new Edge[2 * linkCount];
+		// every vertex appears once per link it has, so a uniform pick is proportional to the degree
+		int[] endpoints = new int[2 * linkCount];
+		int endpointCount = 0;
+		int e = 0;
+		for (int v = 0; v <= edgesPerVertex; v++) {
+			for (int u = 0; u < v; u++) {
+				e = link(edges, e, vertexes[u], vertexes[v], weight(random, minWeight, maxWeight));
+				endpoints[endpointCount++] = u;
+				endpoints[endpointCount++] = v;
+			}
+		}
+		int[] chosen = new int[edgesPerVertex];
+		for (int v = edgesPerVertex + 1; v < vertexCount; v++) {
+			int chosenCount = 0;
+			while (chosenCount < edgesPerVertex) {
+				int candidate = endpoints[random.nextInt(endpointCount)];
+				if (!contains(chosen, chosenCount, candidate)) {
+					chosen[chosenCount++] = candidate;
+				}
+			}
+			for (int i = 0; i < chosenCount; i++) {
+				e = link(edges, e, vertexes[chosen[i]], vertexes[v], weight(random, minWeight, maxWeight));
+				endpoints[endpointCount++] = chosen[i];
+				endpoints[endpointCount++] = v;
+			}
+		}
+		return new Graph(vertexes, edges);
+	}
+
+	/**
+	 * Directed acyclic graph with m distinct edges which all go from a lower to a higher position of a
+	 * random order of the vertexes. A negative minimum weight gives negative edges without any negative
+	 * cycle, the input Bellman-Ford is made for.
+	 */
+	public static Graph acyclic(int vertexCount, int edgeCount, double minWeight, double maxWeight, long seed) {
+		if ((long) vertexCount * (vertexCount - 1) / 2 < edgeCount) {
+			throw new IllegalArgumentException(String.format("%d vertexes cannot have %d distinct acyclic edges.", vertexCount, edgeCount));
+		}
+		Random random = new Random(seed);
+		Vertex[] vertexes = createVertexes(vertexCount);
+		int[] order = new int[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			order[i] = i;
+		}
+		for (int i = vertexCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		Edge[] edges = new Edge[edgeCount];
+		Set<Long> pairs = new HashSet<Long>();
+		int e = 0;
+		while (e < edgeCount) {
+			int first = random.nextInt(vertexCount);
+			int second = random.nextInt(vertexCount);
+			if (first == second) {
+				continue;
+			}
+			int from = Math.min(first, second);
+			int to = Math.max(first, second);
+			if (pairs.add((long) from * vertexCount + to)) {
+				edges[e++] = new Edge(vertexes[order[from]], vertexes[order[to]], weight(random, minWeight, maxWeight));
+			}
+		}
+		return new Graph(vertexes, edges);
+	}
+
+	/**
+	 * Nodes for distance vector routing with a link for every edge of the graph, which must have an edge
+	 * in each direction with the same weight for every link, like the grid and scale free graphs.
+	 */
+	public static Node[] toNodes(Graph graph) {
+		Vertex[] vertexes = graph.getVertexes();
+		Node[] nodes = new Node[vertexes.length];
+		Map<Integer, Node> nodesById = new HashMap<Integer, Node>();
+		for (int i = 0; i < vertexes.length; i++) {
+			nodes[i] = new Node(vertexes[i].getId());
+			nodesById.put(vertexes[i].getId(), nodes[i]);
+		}
+		for (Edge edge : graph.getEdges()) {
+			nodesById.get(edge.getSource().getId()).addNeighbour(edge.getDestination().getId(), edge.getWeight());
+		}
+		return nodes;
+	}
+
+	private static Vertex[] createVertexes(int vertexCount) {
+		Vertex[] vertexes = new Vertex[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			vertexes[i] = new Vertex(i);
+		}
+		return vertexes;
+	}
+
+	// pair of opposite edges
+	private static int link(Edge[] edges, int e, Vertex vertex, Vertex other, double weight) {
+		edges[e++] = new Edge(vertex, other, weight);
+		edges[e++] = new Edge(other, vertex, weight);
+		return e;
+	}
+
+	private static double weight(Random random, double minWeight, double maxWeight) {
+		return minWeight + random.nextDouble() * (maxWeight - minWeight);
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,383 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads graphs from text files straight into a {@link CompressedGraphBuilder}.
+ *
+ * Two formats are understood:
+ * <ul>
+ * <li>DIMACS shortest path files (.gr): comment lines starting with c, a problem line "p sp n m" and one
+ * arc line "a u v w" per edge. Vertexes are 1..n.</li>
+ * <li>Edge lists: one "source,target[,weight]" line per edge, the fields separated by commas, semicolons,
+ * tabs or spaces, weight 1 if it is missing. Lines starting with # are comments, and a first line which
+ * does not start with a number is taken as a header.</li>
+ * </ul>
+ *
+ * A file is split into chunks at line boundaries which are parsed in parallel, each by a reader with a
+ * fixed buffer which parses numbers directly from the bytes, so no String is created per line and memory
+ * besides the edges themselves stays bounded. The edges of the chunks are appended in file order.
+ *
+ * @author mehmet
+ *
+ */
+public class GraphImporter {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	// chunks smaller than this are not worth a task of their own
+	private static final long MIN_CHUNK_SIZE = 4L << 20;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final int parallelism;
+
+	public GraphImporter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param parallelism number of chunks parsed at the same time, 1 to parse on the calling thread.
+	 */
+	public GraphImporter(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public CompressedGraph readDimacs(File file) throws IOException {
+		return read(file, true).build();
+	}
+
+	public CompressedGraph readEdgeList(File file) throws IOException {
+		return read(file, false).build();
+	}
+
+	private CompressedGraphBuilder read(File file, boolean dimacs) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			int chunkCount = (int) Math.max(1, Math.min(parallelism * 4L, size / MIN_CHUNK_SIZE));
+			List<ChunkReader> chunks = new ArrayList<ChunkReader>(chunkCount);
+			for (int i = 0; i < chunkCount; i++) {
+				long begin = size * i / chunkCount;
+				long end = size * (i + 1) / chunkCount;
+				chunks.add(dimacs ? new DimacsChunkReader(file, channel, begin, end) : new EdgeListChunkReader(file, channel, begin, end));
+			}
+
+			if (chunkCount == 1 || parallelism == 1) {
+				CompressedGraphBuilder builder = new CompressedGraphBuilder();
+				for (ChunkReader chunk : chunks) {
+					builder.addAll(chunk.call());
+				}
+				return finish(builder, chunks, file, dimacs);
+			}
+
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				List<Future<CompressedGraphBuilder>> results = pool.invokeAll(chunks);
+				int edgeCount = 0;
+				for (Future<CompressedGraphBuilder> result : results) {
+					edgeCount += result.get().getEdgeCount();
+				}
+				CompressedGraphBuilder builder = new CompressedGraphBuilder(edgeCount);
+				for (Future<CompressedGraphBuilder> result : results) {
+					builder.addAll(result.get());
+				}
+				return finish(builder, chunks, file, dimacs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + file, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException("Could not read " + file, e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Adds the vertexes a DIMACS problem line declares, some of which may have no arcs.
+	 */
+	private CompressedGraphBuilder finish(CompressedGraphBuilder builder, List<ChunkReader> chunks, File file, boolean dimacs) throws IOException {
+		if (!dimacs) {
+			return builder;
+		}
+		int vertexCount = -1;
+		for (ChunkReader chunk : chunks) {
+			vertexCount = Math.max(vertexCount, ((DimacsChunkReader) chunk).vertexCount);
+		}
+		if (vertexCount < 0) {
+			throw new IOException(String.format("%s has no problem line.", file));
+		}
+		for (int id = 1; id <= vertexCount; id++) {
+			builder.addVertex(id);
+		}
+		return builder;
+	}
+
+	/**
+	 * Parses the lines which start in [begin, end) of the file. Positional reads leave the channel shared by
+	 * all chunks untouched.
+	 */
+	private abstract static class ChunkReader implements Callable<CompressedGraphBuilder> {
+
+		private final File file;
+		private final FileChannel channel;
+		private final long begin;
+		private final long end;
+
+		protected CompressedGraphBuilder builder;
+		// the line being parsed
+		protected byte[] bytes;
+		private int lineBegin;
+		protected int cursor;
+		protected int lineEnd;
+		protected long lineOffset;
+
+		ChunkReader(File file, FileChannel channel, long begin, long end) {
+			this.file = file;
+			this.channel = channel;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		public CompressedGraphBuilder call() throws IOException {
+			builder = new CompressedGraphBuilder(1024);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			bytes = buffer.array();
+			long position = begin;
+			if (begin > 0) {
+				// a line starting before the chunk belongs to the previous one, unless it ends right there
+				position = begin - 1;
+			}
+			boolean skipping = begin > 0;
+			// file offset of bytes[0]
+			long bufferOffset = position;
+			int length = 0;
+			while (true) {
+				buffer.position(length);
+				int read = channel.read(buffer, position);
+				if (read > 0) {
+					position += read;
+					length += read;
+				}
+				boolean endOfFile = read < 0 || (read == 0 && position >= channel.size());
+
+				int lineStart = 0;
+				for (int i = 0; i < length; i++) {
+					if (bytes[i] != '\n') {
+						continue;
+					}
+					if (skipping) {
+						skipping = false;
+					} else if (bufferOffset + lineStart >= end) {
+						return builder;
+					} else {
+						parse(lineStart, i, bufferOffset + lineStart);
+					}
+					lineStart = i + 1;
+				}
+				if (endOfFile) {
+					if (!skipping && lineStart < length && bufferOffset + lineStart < end) {
+						parse(lineStart, length, bufferOffset + lineStart);
+					}
+					return builder;
+				}
+				if (lineStart == 0 && length == bytes.length) {
+					throw new IOException(String.format("Line at byte %d of %s is longer than %d bytes.", bufferOffset, file, BUFFER_SIZE));
+				}
+				// the incomplete last line moves to the front of the buffer
+				System.arraycopy(bytes, lineStart, bytes, 0, length - lineStart);
+				length -= lineStart;
+				bufferOffset += lineStart;
+			}
+		}
+
+		private void parse(int start, int end, long offset) throws IOException {
+			if (end > start && bytes[end - 1] == '\r') {
+				end--;
+			}
+			lineBegin = start;
+			cursor = start;
+			lineEnd = end;
+			lineOffset = offset;
+			parseLine();
+		}
+
+		protected abstract void parseLine() throws IOException;
+
+		/**
+		 * Moves the cursor over separators.
+		 *
+		 * @return true if a field follows on the line.
+		 */
+		protected boolean hasField() {
+			while (cursor < lineEnd && isSeparator(bytes[cursor])) {
+				cursor++;
+			}
+			return cursor < lineEnd;
+		}
+
+		protected int nextInt() throws IOException {
+			if (!hasField()) {
+				throw malformed();
+			}
+			boolean negative = bytes[cursor] == '-';
+			if (negative || bytes[cursor] == '+') {
+				cursor++;
+			}
+			long value = 0;
+			int digits = 0;
+			while (cursor < lineEnd && isDigit(bytes[cursor])) {
+				value = value * 10 + (bytes[cursor++] - '0');
+				if (value > Integer.MAX_VALUE + 1L) {
+					throw malformed();
+				}
+				digits++;
+			}
+			value = negative ? -value : value;
+			if (digits == 0 || value > Integer.MAX_VALUE || (cursor < lineEnd && !isSeparator(bytes[cursor]))) {
+				throw malformed();
+			}
+			return (int) value;
+		}
+
+		/**
+		 * Plain decimals with up to 15 significant digits are parsed from the bytes, which gives the same
+		 * double as {@link Double#parseDouble(String)} since the digits and the power of ten are both exact.
+		 * Anything else, such as exponents, goes through {@link Double#parseDouble(String)}.
+		 */
+		protected double nextDouble() throws IOException {
+			if (!hasField()) {
+				throw malformed();
+			}
+			int start = cursor;
+			boolean negative = bytes[cursor] == '-';
+			if (negative || bytes[cursor] == '+') {
+				cursor++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int fractionDigits = -1;
+			while (cursor < lineEnd && !isSeparator(bytes[cursor])) {
+				byte b = bytes[cursor++];
+				if (isDigit(b)) {
+					mantissa = mantissa * 10 + (b - '0');
+					digits++;
+					if (fractionDigits >= 0) {
+						fractionDigits++;
+					}
+				} else if (b == '.' && fractionDigits < 0) {
+					fractionDigits = 0;
+				} else {
+					digits = Integer.MAX_VALUE;
+				}
+			}
+			if (digits > 0 && digits <= 15) {
+				double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+				return negative ? -value : value;
+			}
+			try {
+				return Double.parseDouble(new String(bytes, start, cursor - start, ASCII));
+			} catch (NumberFormatException e) {
+				throw malformed();
+			}
+		}
+
+		protected IOException malformed() {
+			String line = new String(bytes, lineBegin, lineEnd - lineBegin, ASCII);
+			return new IOException(String.format("Malformed line at byte %d of %s: %s", lineOffset, file, line));
+		}
+
+		private static boolean isSeparator(byte b) {
+			return b == ' ' || b == '\t' || b == ',' || b == ';';
+		}
+
+		protected static boolean isDigit(byte b) {
+			return b >= '0' && b <= '9';
+		}
+	}
+
+	private static class DimacsChunkReader extends ChunkReader {
+
+		// n of the problem line if it is in this chunk, else -1
+		int vertexCount = -1;
+
+		DimacsChunkReader(File file, FileChannel channel, long begin, long end) {
+			super(file, channel, begin, end);
+		}
+
+		@Override
+		protected void parseLine() throws IOException {
+			if (!hasField()) {
+				return;
+			}
+			byte kind = bytes[cursor++];
+			if (kind == 'c') {
+				return;
+			}
+			if (kind == 'a') {
+				int source = nextInt();
+				int target = nextInt();
+				double weight = nextDouble();
+				builder.addEdge(source, target, weight);
+			} else if (kind == 'p') {
+				// p sp n m
+				if (!hasField()) {
+					throw malformed();
+				}
+				while (cursor < lineEnd && bytes[cursor] != ' ' && bytes[cursor] != '\t') {
+					cursor++;
+				}
+				vertexCount = nextInt();
+			} else {
+				throw malformed();
+			}
+		}
+	}
+
+	private static class EdgeListChunkReader extends ChunkReader {
+
+		EdgeListChunkReader(File file, FileChannel channel, long begin, long end) {
+			super(file, channel, begin, end);
+		}
+
+		@Override
+		protected void parseLine() throws IOException {
+			if (!hasField() || bytes[cursor] == '#') {
+				return;
+			}
+			if (lineOffset == 0 && !isDigit(bytes[cursor]) && bytes[cursor] != '-' && bytes[cursor] != '+') {
+				// header
+				return;
+			}
+			int source = nextInt();
+			int target = nextInt();
+			double weight = hasField() ? nextDouble() : 1;
+			builder.addEdge(source, target, weight);
+		}
+	}
+}
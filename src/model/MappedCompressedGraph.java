@@ -0,0 +1,178 @@
+package model;
+
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link CompressedGraph} whose arrays are views of a file mapped into memory by {@link GraphFile#map},
+ * so opening a graph costs a few system calls however large it is and the pages are only read when a
+ * query touches them. The operating system keeps them in its page cache, shared by every process using
+ * the same file.
+ *
+ * Reads use absolute positions only, so several threads may query the graph at the same time.
+ *
+ * @author mehmet
+ *
+ */
+public class MappedCompressedGraph extends CompressedGraph {
+
+	private final int vertexCount;
+	private final int edgeCount;
+	private final double minWeight;
+	private final IntBuffer ids;
+	private final IntBuffer sortedIds;
+	private final IntBuffer sortedIndexes;
+	private final IntBuffer offsets;
+	private final IntBuffer targets;
+	// exactly one of the weight buffers is set, the one of weightType
+	private final WeightType weightType;
+	private final DoubleBuffer weights;
+	private final FloatBuffer floatWeights;
+	private final IntBuffer intWeights;
+	// null unless the file has coordinates
+	private final DoubleBuffer xs;
+	private final DoubleBuffer ys;
+
+	// the reversed graph if the file has it, else built in memory on first use
+	private CompressedGraph reverse;
+
+	/**
+	 * @param weights a DoubleBuffer, FloatBuffer or IntBuffer as the weight type says.
+	 */
+	MappedCompressedGraph(int vertexCount, int edgeCount, double minWeight, IntBuffer ids, IntBuffer sortedIds, IntBuffer sortedIndexes, IntBuffer offsets,
+			IntBuffer targets, WeightType weightType, Buffer weights, DoubleBuffer xs, DoubleBuffer ys) {
+		this.vertexCount = vertexCount;
+		this.edgeCount = edgeCount;
+		this.minWeight = minWeight;
+		this.ids = ids;
+		this.sortedIds = sortedIds;
+		this.sortedIndexes = sortedIndexes;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weightType = weightType;
+		this.weights = weightType == WeightType.DOUBLE ? (DoubleBuffer) weights : null;
+		this.floatWeights = weightType == WeightType.FLOAT ? (FloatBuffer) weights : null;
+		this.intWeights = weightType == WeightType.INT ? (IntBuffer) weights : null;
+		this.xs = xs;
+		this.ys = ys;
+	}
+
+	/**
+	 * The same vertexes with other edges, for the reversed graph stored in the file.
+	 */
+	MappedCompressedGraph(MappedCompressedGraph graph, IntBuffer offsets, IntBuffer targets, Buffer weights) {
+		this(graph.vertexCount, graph.edgeCount, graph.minWeight, graph.ids, graph.sortedIds, graph.sortedIndexes, offsets, targets, graph.weightType, weights,
+				graph.xs, graph.ys);
+		this.reverse = graph;
+		graph.reverse = this;
+	}
+
+	@Override
+	public synchronized CompressedGraph getReverse() {
+		if (reverse == null) {
+			reverse = super.getReverse();
+		}
+		return reverse;
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	@Override
+	public int getIndex(int id) {
+		int low = 0;
+		int high = vertexCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleId = sortedIds.get(middle);
+			if (middleId < id) {
+				low = middle + 1;
+			} else if (middleId > id) {
+				high = middle - 1;
+			} else {
+				return sortedIndexes.get(middle);
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int getId(int index) {
+		return ids.get(index);
+	}
+
+	@Override
+	public int getEdgesBegin(int index) {
+		return offsets.get(index);
+	}
+
+	@Override
+	public int getEdgesEnd(int index) {
+		return offsets.get(index + 1);
+	}
+
+	@Override
+	public int getTarget(int edge) {
+		return targets.get(edge);
+	}
+
+	@Override
+	public double getWeight(int edge) {
+		if (weights != null) {
+			return weights.get(edge);
+		}
+		if (intWeights != null) {
+			return intWeights.get(edge);
+		}
+		return floatWeights.get(edge);
+	}
+
+	@Override
+	public int getIntWeight(int edge) {
+		return intWeights.get(edge);
+	}
+
+	@Override
+	public WeightType getWeightType() {
+		return weightType;
+	}
+
+	@Override
+	public double getMinWeight() {
+		return minWeight;
+	}
+
+	@Override
+	public boolean hasCoordinates() {
+		return xs != null;
+	}
+
+	@Override
+	public double getX(int index) {
+		return xs.get(index);
+	}
+
+	@Override
+	public double getY(int index) {
+		return ys.get(index);
+	}
+
+	@Override
+	int getSortedId(int position) {
+		return sortedIds.get(position);
+	}
+
+	@Override
+	int getSortedIndex(int position) {
+		return sortedIndexes.get(position);
+	}
+}
@@ -1,11 +1,12 @@
 package model;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
-public class Node {
+public class Node implements Router {
 
 	Integer id;
 	// Distances to neighbors
@@ -23,26 +24,73 @@ public class Node {
 	// <dest, nodeId to hop first>
 	Map<Integer, Integer> firstHop;
 
+	// destinations whose cost changed since the distance vector was last advertised
+	Set<Integer> changedDestinations;
+
+	// destinations for which a neighbour advertised a new cost since the algorithm last ran
+	Set<Integer> affectedDestinations;
+
+	// first hop of each destination when it was last advertised
+	Map<Integer, Integer> advertisedFirstHops;
+
+	// costs at or above this are treated as unreachable, the network sets a finite bound
+	double infinity = Double.MAX_VALUE;
+
 	public Node(Integer id) {
 		this.id = id;
 		neighbours = new HashMap<Integer, Double>();
 		distanceVector = new TreeMap<Integer, Double>();
 		neighbourDistanceVectors = new HashMap<Integer, Map<Integer, Double>>();
 		firstHop = new HashMap<Integer, Integer>();
+		changedDestinations = new HashSet<Integer>();
+		affectedDestinations = new HashSet<Integer>();
+		advertisedFirstHops = new HashMap<Integer, Integer>();
 
 		// Distance to itself is zero.
-		distanceVector.put(id, 0.0);
+		updateDistanceVector(id, 0.0);
 	}
 
 	public void addNeighbour(Integer neighbourId, double distance) {
 		neighbours.put(neighbourId, distance);
-		distanceVector.put(neighbourId, distance);
+		updateDistanceVector(neighbourId, distance);
 		firstHop.put(neighbourId, neighbourId);
 	}
 
+	/**
+	 * Changes the cost of the link to an existing neighbour. Every destination is recomputed by the next run
+	 * of the algorithm, costs may go up as well as down.
+	 */
+	public void setLinkCost(Integer neighbourId, double distance) {
+		if (neighbours.containsKey(neighbourId)) {
+			neighbours.put(neighbourId, distance);
+			affectedDestinations.addAll(distanceVector.keySet());
+		}
+	}
+
+	public double getLinkCost(Integer neighbourId) {
+		Double cost = neighbours.get(neighbourId);
+		return cost != null ? cost : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Drops the link to the neighbour and the distance vector received from it. Every destination is
+	 * recomputed by the next run of the algorithm.
+	 */
+	public void removeNeighbour(Integer neighbourId) {
+		if (neighbours.remove(neighbourId) != null) {
+			neighbourDistanceVectors.remove(neighbourId);
+			affectedDestinations.addAll(distanceVector.keySet());
+		}
+	}
+
+	public void setInfinity(double infinity) {
+		this.infinity = infinity;
+	}
+
 	public void setNonNeighbours(Set<Integer> set) {
 		for (Integer nodeId : set) {
 			if (!distanceVector.containsKey(nodeId)) {
+				// not advertised, neighbours treat unknown destinations as unreachable anyway
 				distanceVector.put(nodeId, Double.MAX_VALUE);
 				firstHop.put(id, this.getId());
 			}
@@ -63,6 +111,7 @@ public class Node {
 
 	public void updateDistanceVector(Integer key, double value) {
 		this.distanceVector.put(key, value);
+		changedDestinations.add(key);
 	}
 
 	public void updateFirstHop(Integer destinationId, Integer neighborId) {
@@ -70,41 +119,110 @@ public class Node {
 	}
 
 	//this part is very similar to previous algorithms Dijkstra, BellmanFord...
+	//Only the destinations a neighbour advertised a new cost for are recomputed, each from the links and
+	//the latest vectors of all neighbours, so the work is proportional to the changes received. The
+	//recomputed cost replaces the old one even if it is higher, which is what lets a link failure or a
+	//cost increase propagate. Costs reaching the infinity bound become unreachable.
 	public boolean runTheAlgorithm() {
 
 		boolean change = false;
 
-		for (Integer neighbor : this.getNeighbours()) {
-
-			Map<Integer, Double> neighbourDistanceVector = neighbourDistanceVectors.get(neighbor);
-			for (Integer nodeId : distanceVector.keySet()) {
-
-				if (!this.id.equals(nodeId)) {
-					// cost of neighbour to N
-					Double neighbourToTargetTravelCost = neighbourDistanceVector.get(nodeId);
-					// link distance to specified neighbor
-					Double neighbourTravelCost = this.neighbours.get(neighbor);
-					
-					if (neighbourToTargetTravelCost != Double.MAX_VALUE) {
-
-						double targetTravellingCost = this.getCostToNode(nodeId);
-						Double updatedTargetTravellingCost = neighbourToTargetTravelCost + neighbourTravelCost;
-
-						if (updatedTargetTravellingCost < targetTravellingCost) {
-							// if the new cost is shorter, then update the distance vector.
-							this.updateDistanceVector(nodeId, updatedTargetTravellingCost);
-							this.updateFirstHop(nodeId, neighbor);
-							change = true;
-						}
-					}
+		for (Integer nodeId : affectedDestinations) {
+			if (this.id.equals(nodeId)) {
+				continue;
+			}
+
+			// a direct link is a candidate as well
+			Double linkCost = this.neighbours.get(nodeId);
+			double bestCost = linkCost != null ? linkCost : Double.MAX_VALUE;
+			Integer bestHop = linkCost != null ? nodeId : null;
+
+			for (Integer neighbor : this.getNeighbours()) {
+				Map<Integer, Double> neighbourDistanceVector = neighbourDistanceVectors.get(neighbor);
+				if (neighbourDistanceVector == null) {
+					// nothing received from this neighbour yet
+					continue;
+				}
+				// cost of neighbour to N
+				Double neighbourToTargetTravelCost = neighbourDistanceVector.get(nodeId);
+				if (neighbourToTargetTravelCost == null || neighbourToTargetTravelCost == Double.MAX_VALUE) {
+					continue;
 				}
+				// link distance to specified neighbor
+				double updatedTargetTravellingCost = neighbourToTargetTravelCost + this.neighbours.get(neighbor);
+				if (updatedTargetTravellingCost < bestCost) {
+					bestCost = updatedTargetTravellingCost;
+					bestHop = neighbor;
+				}
+			}
+
+			if (bestCost >= infinity) {
+				bestCost = Double.MAX_VALUE;
+				bestHop = null;
+			}
+
+			Double targetTravellingCost = distanceVector.get(nodeId);
+			Integer targetFirstHop = firstHop.get(nodeId);
+			// a new first hop at the same cost is advertised as well, split horizon depends on it
+			if (targetTravellingCost == null || bestCost != targetTravellingCost
+					|| (bestHop == null ? targetFirstHop != null : !bestHop.equals(targetFirstHop))) {
+				this.updateDistanceVector(nodeId, bestCost);
+				this.updateFirstHop(nodeId, bestHop);
+				change = true;
 			}
 		}
+		affectedDestinations.clear();
 		return change;
 	}
 
+	/**
+	 * Replaces the whole distance vector held for the neighbour, every destination in it is recomputed by
+	 * the next run of the algorithm.
+	 */
 	public void receiveDistanceVector(Map<Integer, Double> distanceVector, Integer nodeId) {
-		neighbourDistanceVectors.put(nodeId, distanceVector);
+		neighbourDistanceVectors.put(nodeId, new HashMap<Integer, Double>(distanceVector));
+		affectedDestinations.addAll(distanceVector.keySet());
+	}
+
+	/**
+	 * Merges the changed entries advertised by a neighbour, only those destinations are recomputed by the
+	 * next run of the algorithm.
+	 */
+	public void receiveDistanceVectorUpdate(DistanceVectorUpdate update) {
+		Map<Integer, Double> neighbourDistanceVector = neighbourDistanceVectors.get(update.getFromNode());
+		if (neighbourDistanceVector == null) {
+			neighbourDistanceVector = new HashMap<Integer, Double>();
+			neighbourDistanceVectors.put(update.getFromNode(), neighbourDistanceVector);
+		}
+		for (int i = 0; i < update.size(); i++) {
+			neighbourDistanceVector.put(update.getDestination(i), update.getCost(i));
+			affectedDestinations.add(update.getDestination(i));
+		}
+	}
+
+	/**
+	 * @return the entries changed since the last call, null if nothing changed.
+	 */
+	public DistanceVectorUpdate takeDistanceVectorUpdate() {
+		if (changedDestinations.isEmpty()) {
+			return null;
+		}
+		int[] destinations = new int[changedDestinations.size()];
+		double[] costs = new double[destinations.length];
+		int[] firstHops = new int[destinations.length];
+		int[] previousFirstHops = new int[destinations.length];
+		int i = 0;
+		for (Integer destination : changedDestinations) {
+			Integer hop = firstHop.get(destination);
+			Integer previousHop = advertisedFirstHops.put(destination, hop);
+			destinations[i] = destination;
+			costs[i] = distanceVector.get(destination);
+			firstHops[i] = hop != null ? hop : id;
+			previousFirstHops[i] = previousHop != null ? previousHop : id;
+			i++;
+		}
+		changedDestinations.clear();
+		return new DistanceVectorUpdate(id, destinations, costs, firstHops, previousFirstHops);
 	}
 
 	public Integer getId() {
@@ -0,0 +1,42 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Dense indexes 0..n-1 for the ids of the nodes of a network, shared by all {@link CompactNode}s of the
+ * network so that their routing tables can be plain arrays indexed by node.
+ * 
+ * @author mehmet
+ *
+ */
+public class NodeIndex {
+
+	// node ids in ascending order, the position of an id is its index
+	private final int[] ids;
+
+	public NodeIndex(int[] nodeIds) {
+		ids = Arrays.copyOf(nodeIds, nodeIds.length);
+		Arrays.sort(ids);
+		for (int i = 1; i < ids.length; i++) {
+			if (ids[i] == ids[i - 1]) {
+				throw new IllegalArgumentException(String.format("Node %d appears more than once.", ids[i]));
+			}
+		}
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * @return index of the node with the given id, -1 if it is not part of the network.
+	 */
+	public int getIndex(int id) {
+		int index = Arrays.binarySearch(ids, id);
+		return index >= 0 ? index : -1;
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+}
@@ -0,0 +1,79 @@
+package model;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A node of a distance vector routing network, the operations {@code DistanceVectorRoutingImplementation}
+ * needs from it. {@link Node} keeps its routing tables in maps, {@link CompactNode} in primitive arrays.
+ * 
+ * @author mehmet
+ *
+ */
+public interface Router {
+
+	Integer getId();
+
+	void addNeighbour(Integer neighbourId, double distance);
+
+	/**
+	 * Changes the cost of the link to an existing neighbour, nothing happens if there is no such link.
+	 */
+	void setLinkCost(Integer neighbourId, double distance);
+
+	/**
+	 * @return cost of the link to the neighbour, Double.MAX_VALUE if there is no such link.
+	 */
+	double getLinkCost(Integer neighbourId);
+
+	/**
+	 * Drops the link to a neighbour, nothing happens if there is no such link.
+	 */
+	void removeNeighbour(Integer neighbourId);
+
+	/**
+	 * Sets the cost from which on a destination counts as unreachable, Double.MAX_VALUE for a node on its
+	 * own. A finite bound ends counting to infinity after a failure, {@code DistanceVectorRoutingImplementation}
+	 * sets one for every node of its network.
+	 */
+	void setInfinity(double infinity);
+
+	/**
+	 * Tells the node about every node of the network, including the ones it has no link to.
+	 */
+	void setNonNeighbours(Set<Integer> set);
+
+	Set<Integer> getNeighbours();
+
+	/**
+	 * @return cost to the given node, Double.MAX_VALUE if it is unreachable.
+	 */
+	double getCostToNode(Integer n);
+
+	/**
+	 * @return the neighbour to forward to for the given destination.
+	 */
+	Integer getFirstHopToDestination(Integer n);
+
+	/**
+	 * Recomputes the routes affected by the distance vectors received since the last run.
+	 * 
+	 * @return true if the distance vector of the node changed.
+	 */
+	boolean runTheAlgorithm();
+
+	/**
+	 * Replaces the whole distance vector held for the neighbour.
+	 */
+	void receiveDistanceVector(Map<Integer, Double> distanceVector, Integer nodeId);
+
+	/**
+	 * Merges the changed entries advertised by a neighbour.
+	 */
+	void receiveDistanceVectorUpdate(DistanceVectorUpdate update);
+
+	/**
+	 * @return the entries changed since the last call, null if nothing changed.
+	 */
+	DistanceVectorUpdate takeDistanceVectorUpdate();
+}
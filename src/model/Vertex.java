@@ -3,6 +3,9 @@ public class Vertex {
 
 	private int id;
 	private Vertex[] neighbours;
+	// optional position of the vertex, NaN if the graph carries no coordinates
+	private double x = Double.NaN;
+	private double y = Double.NaN;
 
 	public Vertex(int id) {
 		this.id = id;
@@ -25,6 +28,26 @@ public class Vertex {
 		return neighbours;
 	}
 
+	/**
+	 * Places the vertex on the plane, or on the globe with x as longitude and y as latitude in degrees.
+	 */
+	public void setCoordinates(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public boolean hasCoordinates() {
+		return !Double.isNaN(x) && !Double.isNaN(y);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if(obj instanceof Vertex)